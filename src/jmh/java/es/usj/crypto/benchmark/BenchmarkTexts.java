@@ -0,0 +1,46 @@
+package es.usj.crypto.benchmark;
+
+import es.usj.crypto.enigma.Machine;
+import es.usj.crypto.enigma.Plugboard;
+import es.usj.crypto.enigma.Reflector;
+import es.usj.crypto.enigma.Rotor;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+
+import java.util.Random;
+
+/**
+ * Inputs shared by the benchmarks
+ */
+final class BenchmarkTexts {
+
+    private BenchmarkTexts() {
+    }
+
+    /**
+     * Random plain text including ALPHABET characters and blank spaces, same seed is used for every run
+     * @param size Number of characters
+     * @return Plain text
+     */
+    static String plainText(int size) {
+        Random random = new Random(42);
+        char[] text = new char[size];
+        for (int i = 0; i < size; i++) {
+            text[i] = random.nextInt(6) == 0 ? ' ' : Machine.ALPHABET.charAt(random.nextInt(26));
+        }
+        return new String(text);
+    }
+
+    /**
+     * @return Machine with the configuration used in README
+     */
+    static Machine machine() {
+        return new Machine(
+                new Plugboard("IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK"),
+                new Rotor(RotorConfiguration.ROTOR_I, 'F'),
+                new Rotor(RotorConfiguration.ROTOR_II, 'S'),
+                new Rotor(RotorConfiguration.ROTOR_III, 'E'),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+    }
+
+}
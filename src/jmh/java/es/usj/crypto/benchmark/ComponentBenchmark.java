@@ -0,0 +1,80 @@
+package es.usj.crypto.benchmark;
+
+import es.usj.crypto.enigma.Machine;
+import es.usj.crypto.enigma.Plugboard;
+import es.usj.crypto.enigma.Reflector;
+import es.usj.crypto.enigma.Rotor;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single character operations of the Machine components
+ * Input character changes on every invocation to prevent constant folding
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ComponentBenchmark {
+
+    private Rotor rotor;
+    private Rotor rightRotor;
+    private Plugboard plugboard;
+    private Reflector reflector;
+    private int index;
+
+    @Setup
+    public void setup() {
+        rotor = new Rotor(RotorConfiguration.ROTOR_II, 'S');
+        rightRotor = new Rotor(RotorConfiguration.ROTOR_I, 'F');
+        plugboard = new Plugboard("IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK");
+        reflector = new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT);
+    }
+
+    private char next() {
+        index = index == 25 ? 0 : index + 1;
+        return Machine.ALPHABET.charAt(index);
+    }
+
+    @Benchmark
+    public char rotorForward() {
+        return rotor.forward(next());
+    }
+
+    @Benchmark
+    public char rotorBackward() {
+        return rotor.backward(next());
+    }
+
+    @Benchmark
+    public Rotor rotorUpdate() {
+        rightRotor.update(null);
+        rotor.update(rightRotor);
+        return rotor;
+    }
+
+    @Benchmark
+    public char plugboardGetPlug() {
+        return plugboard.getPlug(next());
+    }
+
+    @Benchmark
+    public char reflectorGetReflection() {
+        return reflector.getReflection(next());
+    }
+
+}
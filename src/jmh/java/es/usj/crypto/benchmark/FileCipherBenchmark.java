@@ -0,0 +1,61 @@
+package es.usj.crypto.benchmark;
+
+import es.usj.crypto.FileCipher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end file encryption as done by CipherRunner.run: Machine creation, reading, ciphering and writing
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FileCipherBenchmark {
+
+    @Param({"1024", "1048576", "104857600"})
+    private int size;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private Path inFile;
+    private Path outFile;
+
+    @Setup
+    public void setup() throws IOException {
+        inFile = Files.createTempFile("enigma-plain", ".txt");
+        outFile = Files.createTempFile("enigma-cipher", ".txt");
+        Files.writeString(inFile, BenchmarkTexts.plainText(size));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(inFile);
+        Files.deleteIfExists(outFile);
+    }
+
+    @Benchmark
+    public Path cipherFile() throws IOException {
+        new FileCipher(BenchmarkTexts.machine(), threads).cipher(inFile, outFile);
+        return outFile;
+    }
+
+}
@@ -0,0 +1,55 @@
+package es.usj.crypto.benchmark;
+
+import es.usj.crypto.enigma.CompiledMachine;
+import es.usj.crypto.enigma.Machine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Machine.getCipheredText throughput for 1 KB, 1 MB and 100 MB plain texts
+ * Rotors are not reset between invocations, as the cost is the same for any rotors position
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MachineBenchmark {
+
+    @Param({"1024", "1048576", "104857600"})
+    private int size;
+
+    private String plainText;
+    private Machine machine;
+    private CompiledMachine compiledMachine;
+
+    @Setup
+    public void setup() {
+        plainText = BenchmarkTexts.plainText(size);
+        machine = BenchmarkTexts.machine();
+        compiledMachine = BenchmarkTexts.machine().compile();
+    }
+
+    @Benchmark
+    public String getCipheredText() {
+        return machine.getCipheredText(plainText);
+    }
+
+    @Benchmark
+    public String compiledGetCipheredText() {
+        return compiledMachine.getCipheredText(plainText);
+    }
+
+}
@@ -0,0 +1,35 @@
+package es.usj.crypto.benchmark;
+
+import es.usj.crypto.enigma.CompiledMachine;
+import es.usj.crypto.enigma.Machine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building a Machine (including Plugboard, Rotors and Reflector validation) and compiling it
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MachineConstructionBenchmark {
+
+    @Benchmark
+    public Machine newMachine() {
+        return BenchmarkTexts.machine();
+    }
+
+    @Benchmark
+    public CompiledMachine compile() {
+        return BenchmarkTexts.machine().compile();
+    }
+
+}
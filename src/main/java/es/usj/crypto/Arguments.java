@@ -0,0 +1,43 @@
+package es.usj.crypto;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line arguments using the same syntax than Spring Boot applications: --name=value or --name
+ * Arguments not starting with -- are ignored
+ */
+class Arguments {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    Arguments(String... args) {
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.length() > 2) {
+                int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    values.put(arg.substring(2), "");
+                } else {
+                    values.put(arg.substring(2, separator), arg.substring(separator + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param name Argument name without the -- prefix
+     * @return Argument value, empty when the argument has no value and null when it's missing
+     */
+    String get(String name) {
+        return values.get(name);
+    }
+
+    /**
+     * @param name Argument name without the -- prefix
+     * @return True when the argument is included, with or without value
+     */
+    boolean contains(String name) {
+        return values.containsKey(name);
+    }
+
+}
@@ -0,0 +1,220 @@
+package es.usj.crypto;
+
+import es.usj.crypto.enigma.Machine;
+import es.usj.crypto.enigma.Plugboard;
+import es.usj.crypto.enigma.Reflector;
+import es.usj.crypto.enigma.Rotor;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ciphers every file listed in a manifest, each one with its own key, using a pool of threads
+ *
+ * Every line of the manifest is a job with 9 comma separated fields, using the names of the command line arguments:
+ *     input-file,output-file,plugboard,right-rotor,right-rotor-position,middle-rotor,middle-rotor-position,left-rotor,left-rotor-position
+ *
+ * Blank lines, lines starting with # and a header line starting with input-file are ignored. Relative file names
+ * are resolved from the manifest folder. A failed job doesn't stop the rest of the jobs
+ */
+public class BatchCipher {
+
+    private static final int FIELDS = 9;
+
+    // Number of jobs ciphered at the same time
+    private final int threads;
+
+    // Counters and phase timings of every job, null when not required
+    private final CipherStats stats;
+
+    /**
+     * Batch settings
+     * @param threads Number of jobs ciphered at the same time
+     */
+    public BatchCipher(int threads) {
+        this(threads, null);
+    }
+
+    /**
+     * Batch settings
+     * @param threads Number of jobs ciphered at the same time
+     * @param stats Stats receiving bytes, letters and phase timings of every job
+     */
+    public BatchCipher(int threads, CipherStats stats) {
+        assertTrue("Number of threads should be 1 or more", threads >= 1);
+        this.threads = threads;
+        this.stats = stats;
+    }
+
+    /**
+     * Cipher every job in the manifest
+     * @param manifest Manifest file including a job in every line
+     * @return Result of every job, in the manifest order
+     * @throws IOException when the manifest can't be read
+     */
+    public List<Result> cipher(Path manifest) throws IOException {
+
+        Path folder = manifest.toAbsolutePath().getParent();
+        List<String> lines = Files.readAllLines(manifest);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i).trim();
+                if (!line.isEmpty() && !line.startsWith("#") && !line.startsWith("input-file")) {
+                    int lineNumber = i + 1;
+                    futures.add(executor.submit(job(folder, line, lineNumber)));
+                }
+            }
+            List<Result> results = new ArrayList<>(futures.size());
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+    private Callable<Result> job(Path folder, String line, int lineNumber) {
+        return () -> {
+            long start = System.nanoTime();
+            String[] fields = line.split(",", -1);
+            Path inFile = fields.length > 1 ? folder.resolve(fields[0].trim()) : null;
+            Path outFile = fields.length > 1 ? folder.resolve(fields[1].trim()) : null;
+            try {
+                assertEquals("Line " + lineNumber + " should include " + FIELDS + " fields", FIELDS, fields.length);
+                Machine machine = new Machine(
+                        new Plugboard(fields[2].trim()),
+                        new Rotor(rotor(fields[3]), position(fields[4])),
+                        new Rotor(rotor(fields[5]), position(fields[6])),
+                        new Rotor(rotor(fields[7]), position(fields[8])),
+                        new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+                new FileCipher(machine, 1, stats).cipher(inFile, outFile);
+                return new Result(lineNumber, inFile, outFile, Files.size(inFile), System.nanoTime() - start, null);
+            } catch (AssertionError | IOException | RuntimeException e) {
+                return new Result(lineNumber, inFile, outFile, 0, System.nanoTime() - start, String.valueOf(e.getMessage()));
+            }
+        };
+    }
+
+    private static RotorConfiguration rotor(String field) {
+        assertTrue("Rotor number should be 1 to 5, not " + field, field.trim().matches("[1-5]"));
+        return RotorConfiguration.getRotorConfiguration(Integer.parseInt(field.trim()));
+    }
+
+    private static char position(String field) {
+        assertEquals("Rotor position should be a single character, not " + field, 1, field.trim().length());
+        return field.trim().charAt(0);
+    }
+
+    /**
+     * Write a line for every job and a summary line with the totals
+     * @param results Results of the jobs
+     * @param elapsedNanos Elapsed time of the whole batch
+     * @param out Stream receiving the report
+     */
+    public static void report(List<Result> results, long elapsedNanos, PrintStream out) {
+        long bytes = 0;
+        int failed = 0;
+        for (Result result : results) {
+            if (result.isSuccess()) {
+                bytes += result.getBytes();
+                out.printf("OK     line %d: %s -> %s, %d bytes in %.3f ms%n", result.getLine(),
+                        result.getInFile(), result.getOutFile(), result.getBytes(), result.getNanos() / 1e6);
+            } else {
+                failed++;
+                out.printf("FAILED line %d: %s%n", result.getLine(), result.getError());
+            }
+        }
+        double seconds = elapsedNanos / 1e9;
+        out.printf("%d jobs, %d failed, %d bytes in %.3f s (%.1f jobs/s, %.2f MB/s)%n",
+                results.size(), failed, bytes, seconds,
+                results.size() / seconds, bytes / seconds / (1024 * 1024));
+    }
+
+    /**
+     * Outcome of a job
+     */
+    public static class Result {
+
+        private final int line;
+        private final Path inFile;
+        private final Path outFile;
+        private final long bytes;
+        private final long nanos;
+        private final String error;
+
+        Result(int line, Path inFile, Path outFile, long bytes, long nanos, String error) {
+            this.line = line;
+            this.inFile = inFile;
+            this.outFile = outFile;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        /**
+         * @return Manifest line number of the job (starting with 1)
+         */
+        public int getLine() {
+            return line;
+        }
+
+        public Path getInFile() {
+            return inFile;
+        }
+
+        public Path getOutFile() {
+            return outFile;
+        }
+
+        /**
+         * @return Size of the input file, 0 when the job failed
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return Time spent in the job, including key validation
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * @return Failure description, null when the job succeeded
+         */
+        public String getError() {
+            return error;
+        }
+
+    }
+
+}
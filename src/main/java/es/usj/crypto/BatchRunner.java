@@ -0,0 +1,49 @@
+package es.usj.crypto;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static es.usj.crypto.ModeRunner.error;
+
+/**
+ * Ciphers many files in the same JVM with BatchCipher (--manifest)
+ */
+class BatchRunner implements ModeRunner {
+
+    /**
+     * Cipher every job in the manifest and write the report to the standard output,
+     * exiting the JVM with an error when some job failed
+     */
+    @Override
+    public void run(Arguments args) throws IOException {
+
+        String manifest = args.get("manifest");
+        if (manifest.isEmpty()) {
+            error("Use 'manifest' argument to pass a CSV file with a job in every line, " +
+                    "for instance --manifest=jobs.csv");
+        }
+
+        String threads = args.get("threads");
+        if (threads != null && !threads.matches("[1-9][0-9]*")) {
+            error("Use 'threads' argument to select the number of jobs ciphered at the same time, " +
+                    "for instance --threads=4");
+        }
+
+        CipherStats stats = args.contains("stats") ? new CipherStats() : null;
+        long start = System.nanoTime();
+        List<BatchCipher.Result> results = new BatchCipher(
+                threads == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads), stats)
+                .cipher(Path.of(manifest));
+        BatchCipher.report(results, System.nanoTime() - start, System.out);
+        if (stats != null) {
+            stats.report(System.nanoTime() - start, System.err);
+        }
+
+        if (results.stream().anyMatch(result -> !result.isSuccess())) {
+            System.exit(-1);
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+package es.usj.crypto;
+
+import es.usj.crypto.enigma.Machine;
+import es.usj.crypto.enigma.Plugboard;
+import es.usj.crypto.enigma.Reflector;
+import es.usj.crypto.enigma.Rotor;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static es.usj.crypto.ModeRunner.error;
+
+/**
+ * Ciphers a file with the key passed in the arguments, the default mode
+ */
+class CipherRunner implements ModeRunner {
+
+    // Input file name including plain text (characters only in ALPHABET or white space)
+    private String inFile;
+
+    // Plugboard pairing characters map
+    private String plugboard;
+
+    // Left Rotor number (1-5)
+    private int leftRotor;
+    // Left Rotor initial position
+    private char leftRotorPosition;
+
+    // Middle Rotor number (1-5)
+    private int middleRotor;
+    // Middle Rotor initial position
+    private char middleRotorPosition;
+
+    // Right Rotor number (1-5)
+    private int rightRotor;
+    // Right Rotor initial position
+    private char rightRotorPosition;
+
+    // Output file to get the cipher text
+    private String outFile;
+
+    // Formats of the input and output files (text by default)
+    private FileCipher.Format inFormat;
+    private FileCipher.Format outFormat;
+
+    // Number of threads ciphering the input file (1 by default)
+    private int threads;
+
+    // Counters and phase timings printed after ciphering, null without --stats
+    private CipherStats stats;
+
+    /**
+     * Cipher the input file into the output file, exiting the JVM when some argument is missing
+     */
+    @Override
+    public void run(Arguments args) throws IOException {
+
+        parseArguments(args);
+
+        Machine machine = new Machine(
+                new Plugboard(plugboard),
+                new Rotor(RotorConfiguration.getRotorConfiguration(rightRotor), rightRotorPosition),
+                new Rotor(RotorConfiguration.getRotorConfiguration(middleRotor), middleRotorPosition),
+                new Rotor(RotorConfiguration.getRotorConfiguration(leftRotor), leftRotorPosition),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+
+        long start = System.nanoTime();
+        new FileCipher(machine, threads, stats).cipher(Path.of(inFile), inFormat, Path.of(outFile), outFormat);
+        if (stats != null) {
+            stats.report(System.nanoTime() - start, System.err);
+        }
+
+    }
+
+    private void parseArguments(Arguments args) {
+
+        String inFile = args.get("input-file");
+        if (inFile == null) {
+            error("Use 'input-file' argument to pass a local TXT file name with the plain text, " +
+                    "for instance --input-file=plaintext.txt");
+        }
+        this.inFile = inFile;
+
+        String plugboardPairing = args.get("plugboard");
+        if (plugboardPairing == null) {
+            error("Use 'plugboard' argument to pass 10 character pairing map using : as separator, " +
+                    "for instance --plugboard=IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK");
+        }
+        this.plugboard = plugboardPairing;
+
+        String leftRotor = args.get("left-rotor");
+        if (leftRotor == null) {
+            error("Use 'left-rotor' argument to select the left rotor configuration (from 1 to 5), " +
+                    "for instance --left-rotor=1");
+        }
+        this.leftRotor = Integer.parseInt(leftRotor);
+
+        String leftRotorPosition = args.get("left-rotor-position");
+        if (leftRotorPosition == null || leftRotorPosition.length() != 1) {
+            error("Use 'left-rotor-position' argument to select the left rotor initial position (from A to Z), " +
+                    "for instance --left-rotor-position=A");
+        }
+        this.leftRotorPosition = leftRotorPosition.charAt(0);
+
+        String middleRotor = args.get("middle-rotor");
+        if (middleRotor == null) {
+            error("Use 'middle-rotor' argument to select the middle rotor configuration (from 1 to 5), " +
+                    "for instance --middle-rotor=2");
+        }
+        this.middleRotor = Integer.parseInt(middleRotor);
+
+        String middleRotorPosition = args.get("middle-rotor-position");
+        if (middleRotorPosition == null || middleRotorPosition.length() != 1) {
+            error("Use 'middle-rotor-position' argument to select the middle rotor initial position (from A to Z), " +
+                    "for instance --middle-rotor-position=A");
+        }
+        this.middleRotorPosition = middleRotorPosition.charAt(0);
+
+        String rightRotor = args.get("right-rotor");
+        if (rightRotor == null) {
+            error("Use 'right-rotor' argument to select the right rotor configuration (from 1 to 5), " +
+                    "for instance --right-rotor=3");
+        }
+        this.rightRotor = Integer.parseInt(rightRotor);
+
+        String rightRotorPosition = args.get("right-rotor-position");
+        if (rightRotorPosition == null || rightRotorPosition.length() != 1) {
+            error("Use 'right-rotor-position' argument to select the right rotor initial position (from A to Z), " +
+                    "for instance --right-rotor-position=A");
+        }
+        this.rightRotorPosition = rightRotorPosition.charAt(0);
+
+        String outFile = args.get("output-file");
+        if (outFile == null) {
+            error("Use 'output-file' argument to get a local TXT file name with the ciphered text, " +
+                    "for instance --output-file=ciphertext.txt");
+        }
+        this.outFile = outFile;
+
+        String inFormat = args.get("input-format");
+        if (inFormat != null && !inFormat.matches("text|packed")) {
+            error("Use 'input-format' argument to select the format of the input file (text or packed), " +
+                    "for instance --input-format=packed");
+        }
+        this.inFormat = inFormat == null ? FileCipher.Format.TEXT : FileCipher.Format.valueOf(inFormat.toUpperCase());
+
+        String outFormat = args.get("output-format");
+        if (outFormat != null && !outFormat.matches("text|packed")) {
+            error("Use 'output-format' argument to select the format of the output file (text or packed), " +
+                    "for instance --output-format=packed");
+        }
+        this.outFormat = outFormat == null ? FileCipher.Format.TEXT : FileCipher.Format.valueOf(outFormat.toUpperCase());
+
+        String threads = args.get("threads");
+        if (threads != null && !threads.matches("[1-9][0-9]*")) {
+            error("Use 'threads' argument to select the number of threads ciphering the input file, " +
+                    "for instance --threads=4");
+        }
+        this.threads = threads == null ? 1 : Integer.parseInt(threads);
+
+        this.stats = args.contains("stats") ? new CipherStats() : null;
+
+    }
+
+}
@@ -0,0 +1,151 @@
+package es.usj.crypto;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and phase timings for ciphering, shared by any number of threads
+ *
+ * Every phase (reading, ciphering and writing) records the time spent in every invocation in a histogram of
+ * power of two buckets, so recording is a few atomic additions without locks or allocations.
+ * Use CipherStatsMetrics to export the values to Micrometer
+ */
+public class CipherStats {
+
+    /**
+     * Phases of ciphering a stream
+     */
+    public enum Phase {
+        READ, ENCIPHER, WRITE
+    }
+
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder letters = new LongAdder();
+    private final Map<Phase, PhaseTimer> timers = new EnumMap<>(Phase.class);
+
+    public CipherStats() {
+        for (Phase phase : Phase.values()) {
+            timers.put(phase, new PhaseTimer());
+        }
+    }
+
+    /**
+     * @param bytes Bytes ciphered, including blank spaces
+     */
+    public void addBytes(long bytes) {
+        this.bytes.add(bytes);
+    }
+
+    /**
+     * @param letters Letters ciphered, every letter rotates the rotors
+     */
+    public void addLetters(long letters) {
+        this.letters.add(letters);
+    }
+
+    /**
+     * @param phase Phase
+     * @param nanos Time spent in one invocation of the phase
+     */
+    public void record(Phase phase, long nanos) {
+        timers.get(phase).record(nanos);
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getLetters() {
+        return letters.sum();
+    }
+
+    public PhaseTimer getTimer(Phase phase) {
+        return timers.get(phase);
+    }
+
+    /**
+     * Write throughput and phase timings
+     * @param elapsedNanos Elapsed time to compute the throughput
+     * @param out Stream receiving the summary
+     */
+    public void report(long elapsedNanos, PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf("%d bytes, %d letters in %.3f s (%.2f MB/s, %.0f letters/s)%n",
+                getBytes(), getLetters(), seconds, getBytes() / seconds / (1024 * 1024), getLetters() / seconds);
+        for (Phase phase : Phase.values()) {
+            PhaseTimer timer = timers.get(phase);
+            out.printf("%-8s %d times, total %.3f ms, mean %.1f us, p99 < %.1f us, max %.1f us%n",
+                    phase.name().toLowerCase(), timer.getCount(), timer.getTotalNanos() / 1e6,
+                    timer.getCount() == 0 ? 0 : timer.getTotalNanos() / 1e3 / timer.getCount(),
+                    timer.percentile(0.99) / 1e3, timer.getMaxNanos() / 1e3);
+        }
+    }
+
+    /**
+     * Timing of a phase, durations are counted in buckets: bucket i counts durations from 2^(i-1) to 2^i - 1 nanos
+     */
+    public static class PhaseTimer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(Math.max(nanos, 0)));
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @param bucket Bucket index (0 .. 63)
+         * @return Number of durations below 2^bucket nanos
+         */
+        public long getCountBelow(int bucket) {
+            long count = 0;
+            for (int i = 0; i <= bucket; i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * @param quantile Quantile (0 .. 1)
+         * @return Upper bound of the bucket including the quantile, in nanos
+         */
+        public long percentile(double quantile) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                total += buckets.get(i);
+            }
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return i == Long.SIZE - 1 ? Long.MAX_VALUE : 1L << i;
+                }
+            }
+            return 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,62 @@
+package es.usj.crypto;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports CipherStats to a Micrometer registry, values are read from the stats when the registry is published
+ *
+ * The distribution of every phase is exported as cumulative histogram buckets, one gauge for every power of two
+ * from about 1 us to about 1100 s tagged with its upper bound in seconds, as Prometheus "le" buckets
+ */
+public class CipherStatsMetrics implements MeterBinder {
+
+    // Power of two bounds of the exported buckets, in nanos
+    private static final int FIRST_BUCKET = 10;
+    private static final int LAST_BUCKET = 40;
+
+    private final CipherStats stats;
+
+    public CipherStatsMetrics(CipherStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("enigma.cipher.bytes", stats, CipherStats::getBytes)
+                .description("Bytes ciphered, including blank spaces")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("enigma.cipher.letters", stats, CipherStats::getLetters)
+                .description("Letters ciphered")
+                .register(registry);
+        for (CipherStats.Phase phase : CipherStats.Phase.values()) {
+            CipherStats.PhaseTimer timer = stats.getTimer(phase);
+            String name = phase.name().toLowerCase();
+            FunctionTimer.builder("enigma.cipher.phase", timer,
+                            CipherStats.PhaseTimer::getCount, CipherStats.PhaseTimer::getTotalNanos, TimeUnit.NANOSECONDS)
+                    .description("Time spent reading, ciphering and writing")
+                    .tag("phase", name)
+                    .register(registry);
+            Gauge.builder("enigma.cipher.phase.max", timer, t -> t.getMaxNanos() / 1e9)
+                    .description("Maximum time spent in a single invocation of the phase")
+                    .baseUnit("seconds")
+                    .tag("phase", name)
+                    .register(registry);
+            for (int i = FIRST_BUCKET; i <= LAST_BUCKET; i++) {
+                int bucket = i;
+                Gauge.builder("enigma.cipher.phase.histogram", timer, t -> t.getCountBelow(bucket))
+                        .description("Invocations of the phase faster than the bucket upper bound")
+                        .tag("phase", name)
+                        .tag("le", Double.toString((1L << bucket) / 1e9))
+                        .register(registry);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package es.usj.crypto;
+
+import es.usj.crypto.enigma.analysis.CribDragger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static es.usj.crypto.ModeRunner.error;
+
+/**
+ * Finds the offsets where some cribs can be placed in many cipher texts with CribDragger (--crib-drag)
+ */
+class CribDragRunner implements ModeRunner {
+
+    /**
+     * Find the offsets where every crib can be placed in every input file and write them to the standard output,
+     * a line for every offset: file, crib index and letter offset separated by tabs
+     */
+    @Override
+    public void run(Arguments args) throws IOException {
+
+        String cribFile = args.get("crib-drag");
+        if (cribFile.isEmpty()) {
+            error("Use 'crib-drag' argument to pass a local TXT file name with a crib in every line, " +
+                    "for instance --crib-drag=cribs.txt");
+        }
+
+        String inFiles = args.get("input-file");
+        if (inFiles == null || inFiles.isEmpty()) {
+            error("Use 'input-file' argument to pass the cipher text files or folders separated by commas, " +
+                    "for instance --input-file=intercepts,extra.txt");
+        }
+
+        String threads = args.get("threads");
+        if (threads != null && !threads.matches("[1-9][0-9]*")) {
+            error("Use 'threads' argument to select the number of threads searching the files, " +
+                    "for instance --threads=4");
+        }
+
+        List<String> cribs = Files.readAllLines(Path.of(cribFile)).stream()
+                .filter(line -> !line.isBlank())
+                .collect(Collectors.toList());
+        // Every file in a folder is searched, sorted by name so crib offsets are always listed in the same order
+        List<Path> files = new ArrayList<>();
+        for (String name : inFiles.split(",")) {
+            Path path = Path.of(name);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> children = Files.list(path)) {
+                    children.filter(Files::isRegularFile).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        ForkJoinPool pool = threads == null ? ForkJoinPool.commonPool() : new ForkJoinPool(Integer.parseInt(threads));
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+        try {
+            new CribDragger(cribs, pool).drag(files, (file, crib, offsets, count) -> {
+                StringBuilder lines = new StringBuilder(count * 32);
+                for (int i = 0; i < count; i++) {
+                    lines.append(file).append('\t').append(crib).append('\t').append(offsets[i]).append('\n');
+                }
+                // A whole batch at once, so lines of different threads are not mixed
+                synchronized (out) {
+                    out.append(lines);
+                }
+            });
+        } finally {
+            out.flush();
+            pool.shutdown();
+        }
+
+    }
+
+}
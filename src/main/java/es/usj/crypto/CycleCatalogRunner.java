@@ -0,0 +1,43 @@
+package es.usj.crypto;
+
+import es.usj.crypto.enigma.ScramblerDatabase;
+import es.usj.crypto.enigma.analysis.CycleCatalog;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static es.usj.crypto.ModeRunner.error;
+
+/**
+ * Saves the CycleCatalog of every rotor order and initial rotor positions (--cycle-catalog)
+ */
+class CycleCatalogRunner implements ModeRunner {
+
+    /**
+     * Compute the cycle characteristic of every rotor order and initial rotor positions and save the catalog
+     */
+    @Override
+    public void run(Arguments args) throws IOException {
+
+        String catalogFile = args.get("cycle-catalog");
+        if (catalogFile.isEmpty()) {
+            error("Use 'cycle-catalog' argument to pass the catalog file to be created, " +
+                    "for instance --cycle-catalog=cycles.catalog");
+        }
+
+        String database = args.get("database");
+        if (database != null && database.isEmpty()) {
+            error("Use 'database' argument to pass the scrambler database file to be read instead of computing " +
+                    "the permutations, for instance --database=scrambler.db");
+        }
+
+        CycleCatalog.generate(ReflectorConfiguration.REFLECTOR_DEFAULT, ForkJoinPool.commonPool(),
+                database == null ? null
+                        : ScramblerDatabase.open(Path.of(database), ReflectorConfiguration.REFLECTOR_DEFAULT))
+                .save(Path.of(catalogFile));
+
+    }
+
+}
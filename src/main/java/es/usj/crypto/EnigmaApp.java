@@ -1,21 +1,19 @@
 package es.usj.crypto;
 
-import es.usj.crypto.enigma.Machine;
-import es.usj.crypto.enigma.Plugboard;
-import es.usj.crypto.enigma.Reflector;
-import es.usj.crypto.enigma.Rotor;
-import es.usj.crypto.enigma.constant.ReflectorConfiguration;
-import es.usj.crypto.enigma.constant.RotorConfiguration;
+import es.usj.crypto.server.EnigmaServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.core.env.PropertySource;
-import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.context.annotation.Bean;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 
 /**
  * Wehrmacht Enigma machine custom implementation with 3 rotors
@@ -35,138 +33,65 @@ import java.nio.file.Path;
  * That can be expressed as 1.07 x 10^23, and it's comparable with a 77 bit key
  *
  * Additional details on Enigma classical configuration available in <a href="https://www.ciphermachinesandcryptology.com/en/enigmatech.htm"/>
+ *
+ * The jar is launched with EnigmaCli, which only starts this Spring application to run the HTTP service (--server).
+ * The meter registry and the EnigmaServer are beans, the server is listening on --port (8080 by default) with
+ * --threads workers (number of cores by default) until the context is closed
  */
 
 @SpringBootApplication
-public class EnigmaApp implements CommandLineRunner {
+public class EnigmaApp implements CommandLineRunner, DisposableBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(EnigmaApp.class);
 
-    // Input file name including plain text (characters only in ALPHABET or white space)
-    private String inFile;
-
-    // Plugboard pairing characters map
-    private String plugboard;
-
-    // Left Rotor number (1-5)
-    private int leftRotor;
-    // Left Rotor initial position
-    private char leftRotorPosition;
+    // HTTP port used when no port is specified
+    private static final int DEFAULT_PORT = 8080;
+    // Seconds to complete current requests when the server is stopped
+    private static final int SHUTDOWN_DELAY = 5;
 
-    // Middle Rotor number (1-5)
-    private int middleRotor;
-    // Middle Rotor initial position
-    private char middleRotorPosition;
+    private final EnigmaServer server;
 
-    // Right Rotor number (1-5)
-    private int rightRotor;
-    // Right Rotor initial position
-    private char rightRotorPosition;
-
-    // Output file to get the cipher text
-    private String outFile;
+    public EnigmaApp(EnigmaServer server) {
+        this.server = server;
+    }
 
     public static void main(String[] args) {
         SpringApplication.run(EnigmaApp.class, args);
     }
 
-    @Override
-    public void run(String... args) throws Exception {
-
-        parseArguments(args);
-
-        Machine machine = new Machine(
-                new Plugboard(plugboard),
-                new Rotor(RotorConfiguration.getRotorConfiguration(rightRotor), rightRotorPosition),
-                new Rotor(RotorConfiguration.getRotorConfiguration(middleRotor), middleRotorPosition),
-                new Rotor(RotorConfiguration.getRotorConfiguration(leftRotor), leftRotorPosition),
-                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
-
-        String input = Files.readString(Path.of(inFile));
-        String output = machine.getCipheredText(input);
-        Files.writeString(Path.of(outFile), output);
-
-        LOG.debug("IN:  " + input);
-        LOG.debug("OUT: " + output);
-
+    /**
+     * @return Registry receiving latency, throughput and worker metrics, published in GET /metrics
+     */
+    @Bean
+    public static MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
     }
 
-    private void parseArguments(String... args) {
-
-        PropertySource<?> ps = new SimpleCommandLinePropertySource(args);
-
-        Object inFile = ps.getProperty("input-file");
-        if (inFile == null) {
-            LOG.error("Use 'input-file' argument to pass a local TXT file name with the plain text, " +
-                    "for instance --input-file=plaintext.txt");
-            System.exit(-1);
-        }
-        this.inFile = inFile.toString();
-
-        Object plugboardPairing = ps.getProperty("plugboard");
-        if (plugboardPairing == null) {
-            LOG.error("Use 'plugboard' argument to pass 10 character pairing map using : as separator, " +
-                    "for instance --plugboard=IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK");
-            System.exit(-1);
-        }
-        this.plugboard = plugboardPairing.toString();
-
-        Object leftRotor = ps.getProperty("left-rotor");
-        if (leftRotor == null) {
-            LOG.error("Use 'left-rotor' argument to select the left rotor configuration (from 1 to 5), " +
-                    "for instance --left-rotor=1");
-            System.exit(-1);
-        }
-        this.leftRotor = Integer.valueOf(leftRotor.toString());
-
-        Object leftRotorPosition = ps.getProperty("left-rotor-position");
-        if (leftRotorPosition == null || leftRotorPosition.toString().length() != 1) {
-            LOG.error("Use 'left-rotor-position' argument to select the left rotor initial position (from A to Z), " +
-                    "for instance --left-rotor-position=A");
-            System.exit(-1);
-        }
-        this.leftRotorPosition = leftRotorPosition.toString().charAt(0);
-
-        Object middleRotor = ps.getProperty("middle-rotor");
-        if (middleRotor == null) {
-            LOG.error("Use 'middle-rotor' argument to select the middle rotor configuration (from 1 to 5), " +
-                    "for instance --middle-rotor=2");
-            System.exit(-1);
-        }
-        this.middleRotor = Integer.valueOf(middleRotor.toString());
-
-        Object middleRotorPosition = ps.getProperty("middle-rotor-position");
-        if (middleRotorPosition == null || middleRotorPosition.toString().length() != 1) {
-            LOG.error("Use 'middle-rotor-position' argument to select the middle rotor initial position (from A to Z), " +
-                    "for instance --middle-rotor-position=A");
-            System.exit(-1);
-        }
-        this.middleRotorPosition = middleRotorPosition.toString().charAt(0);
-
-        Object rightRotor = ps.getProperty("right-rotor");
-        if (rightRotor == null) {
-            LOG.error("Use 'right-rotor' argument to select the right rotor configuration (from 1 to 5), " +
-                    "for instance --right-rotor=3");
-            System.exit(-1);
-        }
-        this.rightRotor = Integer.valueOf(rightRotor.toString());
-
-        Object rightRotorPosition = ps.getProperty("right-rotor-position");
-        if (rightRotorPosition == null || rightRotorPosition.toString().length() != 1) {
-            LOG.error("Use 'right-rotor-position' argument to select the right rotor initial position (from A to Z), " +
-                    "for instance --right-rotor-position=A");
-            System.exit(-1);
-        }
-        this.rightRotorPosition = rightRotorPosition.toString().charAt(0);
+    /**
+     * @param port HTTP port
+     * @param threads Number of threads handling requests, 0 to use the number of cores
+     * @param registry Registry receiving the server metrics
+     * @return HTTP service bound to the port, not listening until the application runs
+     * @throws IOException when the port can't be used
+     */
+    @Bean
+    public static EnigmaServer enigmaServer(
+            @Value("${port:" + DEFAULT_PORT + "}") int port,
+            @Value("${threads:0}") int threads,
+            MeterRegistry registry) throws IOException {
+        return new EnigmaServer(new InetSocketAddress(port),
+                threads == 0 ? Runtime.getRuntime().availableProcessors() : threads, registry);
+    }
 
-        Object outFile = ps.getProperty("output-file");
-        if (inFile == null) {
-            LOG.error("Use 'output-file' argument to get a local TXT file name with the ciphered text, " +
-                    "for instance --input-file=ciphertext.txt");
-            System.exit(-1);
-        }
-        this.outFile = outFile.toString();
+    @Override
+    public void run(String... args) {
+        server.start();
+        LOG.info("Listening on port {}", server.getPort());
+    }
 
+    @Override
+    public void destroy() {
+        server.stop(SHUTDOWN_DELAY);
     }
 
 }
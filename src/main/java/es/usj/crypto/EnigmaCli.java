@@ -0,0 +1,41 @@
+package es.usj.crypto;
+
+import java.io.IOException;
+
+/**
+ * Command line entry point starting without the Spring context, so ciphering a file only pays JVM startup
+ *
+ * The mode is selected from the arguments and run by its ModeRunner, argument errors are written to the
+ * standard error. Only --server starts the Spring context, with EnigmaApp. Use --manifest to cipher many files
+ * in the same JVM with BatchCipher, --search to run a worker of a ShardedSearch, --ngram-model to save the
+ * NgramModel of a corpus, --scrambler-database to save the ScramblerDatabase of every rotor order,
+ * --cycle-catalog to save the CycleCatalog of every rotor order and initial rotor positions and --crib-drag
+ * to find the offsets where some cribs can be placed in many cipher texts with CribDragger.
+ * Otherwise the input file is ciphered with the key in the arguments
+ */
+public class EnigmaCli {
+
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = new Arguments(args);
+        ModeRunner runner;
+        if (arguments.contains("server")) {
+            runner = new ServerRunner();
+        } else if (arguments.contains("manifest")) {
+            runner = new BatchRunner();
+        } else if (arguments.contains("search")) {
+            runner = new SearchRunner();
+        } else if (arguments.contains("ngram-model")) {
+            runner = new NgramModelRunner();
+        } else if (arguments.contains("scrambler-database")) {
+            runner = new ScramblerDatabaseRunner();
+        } else if (arguments.contains("cycle-catalog")) {
+            runner = new CycleCatalogRunner();
+        } else if (arguments.contains("crib-drag")) {
+            runner = new CribDragRunner();
+        } else {
+            runner = new CipherRunner();
+        }
+        runner.run(arguments);
+    }
+
+}
@@ -0,0 +1,265 @@
+package es.usj.crypto;
+
+import es.usj.crypto.enigma.Machine;
+import es.usj.crypto.enigma.io.PackedInputStream;
+import es.usj.crypto.enigma.io.PackedOutputStream;
+
+import jdk.jfr.FlightRecorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ciphers a text file into another text file reading and writing fixed size chunks,
+ * so memory usage is the same for any file size
+ *
+ * The Machine keeps the rotors position from one chunk to the next one, so the output is the same
+ * than ciphering the whole file content at once
+ *
+ * When using several threads, every chunk is ciphered in parallel by the Machine and chunk size is
+ * multiplied by the number of threads
+ *
+ * Files can be plain ASCII text or packed text (5 bits for every letter), packed files are unpacked and packed
+ * while the chunks are read and written
+ */
+public class FileCipher {
+
+    // Size in bytes of the chunks read from the input file
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Format of the input and output files
+     */
+    public enum Format {
+        // ASCII text, one byte for every character
+        TEXT,
+        // Packed text written by PackedOutputStream
+        PACKED
+    }
+
+    private final Machine machine;
+
+    // Number of threads ciphering every chunk
+    private final int threads;
+
+    // Counters and phase timings, null when not required
+    private final CipherStats stats;
+
+    /**
+     * File cipher settings
+     * @param machine Machine used to cipher the file contents, rotors position is updated when ciphering
+     */
+    public FileCipher(Machine machine) {
+        this(machine, 1);
+    }
+
+    /**
+     * File cipher settings
+     * @param machine Machine used to cipher the file contents, rotors position is updated when ciphering
+     * @param threads Number of threads ciphering every chunk
+     */
+    public FileCipher(Machine machine, int threads) {
+        this(machine, threads, null);
+    }
+
+    /**
+     * File cipher settings
+     * @param machine Machine used to cipher the file contents, rotors position is updated when ciphering
+     * @param threads Number of threads ciphering every chunk
+     * @param stats Stats receiving bytes, letters and the time spent reading, ciphering and writing every chunk
+     */
+    public FileCipher(Machine machine, int threads, CipherStats stats) {
+        assertTrue("Number of threads should be 1 or more", threads >= 1);
+        this.machine = machine;
+        this.threads = threads;
+        this.stats = stats;
+    }
+
+    /**
+     * Cipher the ASCII content of a file into a file, every chunk is ciphered in place
+     * @param inFile File including plain text (characters only in ALPHABET or white space)
+     * @param outFile File to be created or overwritten with the ciphered text
+     * @throws IOException when the files can't be read or written
+     */
+    public void cipher(Path inFile, Path outFile) throws IOException {
+        cipher(inFile, Format.TEXT, outFile, Format.TEXT);
+    }
+
+    /**
+     * Cipher the content of a file into a file, converting the format if required
+     * A packed output file is deleted when ciphering fails, as it would be readable up to the failure
+     * @param inFile File including plain text (characters only in ALPHABET or white space)
+     * @param inFormat Format of the input file
+     * @param outFile File to be created or overwritten with the ciphered text
+     * @param outFormat Format of the output file
+     * @throws IOException when the files can't be read or written
+     */
+    public void cipher(Path inFile, Format inFormat, Path outFile, Format outFormat) throws IOException {
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+
+        try (ReadableByteChannel in = open(inFile, inFormat)) {
+            cipher(in, inFile, outFile, outFormat, pool);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+    }
+
+    /**
+     * Cipher the content of an opened input file into the output file, chunk by chunk
+     */
+    private void cipher(ReadableByteChannel in, Path inFile, Path outFile, Format outFormat, ForkJoinPool pool)
+            throws IOException {
+
+        try (WritableByteChannel out = create(outFile, outFormat)) {
+
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE * threads);
+            long initialLetters = machine.getLetters();
+            long bytes = 0;
+            long time = System.nanoTime();
+            while (read(in, buffer, inFile) >= 0) {
+
+                time = record(CipherStats.Phase.READ, time);
+                buffer.flip();
+                if (pool == null) {
+                    machine.encipher(buffer.array(), 0, buffer.limit());
+                } else {
+                    machine.encipher(buffer.array(), 0, buffer.limit(), pool);
+                }
+                time = record(CipherStats.Phase.ENCIPHER, time);
+                bytes += buffer.limit();
+                write(out, buffer, outFile);
+                time = record(CipherStats.Phase.WRITE, time);
+                buffer.clear();
+
+            }
+
+            if (stats != null) {
+                stats.addBytes(bytes);
+                stats.addLetters(machine.getLetters() - initialLetters);
+            }
+
+        } catch (IOException | RuntimeException | Error e) {
+            // Closing a packed file writes a valid header for the text ciphered so far, so a truncated file is deleted
+            if (outFormat == Format.PACKED) {
+                Files.deleteIfExists(outFile);
+            }
+            throw e;
+        }
+
+    }
+
+    private static ReadableByteChannel open(Path file, Format format) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (format == Format.TEXT) {
+            return channel;
+        }
+        try {
+            return Channels.newChannel(new PackedInputStream(channel));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static WritableByteChannel create(Path file, Format format) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (format == Format.TEXT) {
+            return channel;
+        }
+        try {
+            return Channels.newChannel(new PackedOutputStream(channel));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Record the time spent in a phase
+     * @param phase Completed phase
+     * @param start Time when the phase started
+     * @return Time when the next phase starts
+     */
+    private long record(CipherStats.Phase phase, long start) {
+        if (stats == null) {
+            return start;
+        }
+        long now = System.nanoTime();
+        stats.record(phase, now - start);
+        return now;
+    }
+
+    private static int read(ReadableByteChannel in, ByteBuffer buffer, Path file) throws IOException {
+        // Loading a JFR event class is expensive, events are only created when some recording has been started
+        if (!FlightRecorder.isInitialized()) {
+            return read(in, buffer);
+        }
+        FileIOEvent event = new FileIOEvent();
+        event.begin();
+        int read = read(in, buffer);
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "read";
+            event.path = file.toString();
+            event.bytes = Math.max(read, 0);
+            event.commit();
+        }
+        return read;
+    }
+
+    /**
+     * Fill the buffer, as a channel reading a packed file returns a few KB at a time
+     * @return Bytes read, -1 when the end of the file was reached before reading any byte
+     */
+    private static int read(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int bytes = in.read(buffer);
+            if (bytes < 0) {
+                return read == 0 ? -1 : read;
+            }
+            read += bytes;
+        }
+        return read;
+    }
+
+    private static void write(WritableByteChannel out, ByteBuffer buffer, Path file) throws IOException {
+        if (!FlightRecorder.isInitialized()) {
+            write(out, buffer);
+            return;
+        }
+        FileIOEvent event = new FileIOEvent();
+        event.begin();
+        int bytes = buffer.remaining();
+        write(out, buffer);
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "write";
+            event.path = file.toString();
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    private static void write(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+}
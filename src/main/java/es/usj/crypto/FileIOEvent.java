@@ -0,0 +1,29 @@
+package es.usj.crypto;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for every chunk read or written by FileCipher
+ */
+@Name("es.usj.crypto.FileIO")
+@Label("Enigma File I/O")
+@Category("Enigma")
+@Description("Chunk read from the input file or written to the output file")
+class FileIOEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+}
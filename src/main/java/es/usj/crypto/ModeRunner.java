@@ -0,0 +1,26 @@
+package es.usj.crypto;
+
+import java.io.IOException;
+
+/**
+ * Mode of the command line, EnigmaCli selects the mode from the arguments
+ */
+interface ModeRunner {
+
+    /**
+     * Run the mode, exiting the JVM when some argument is missing or not valid
+     * @param args Command line arguments
+     * @throws IOException when the files can't be read or written
+     */
+    void run(Arguments args) throws IOException;
+
+    /**
+     * Write an argument error to the standard error and exit the JVM
+     * @param message Usage of the wrong argument
+     */
+    static void error(String message) {
+        System.err.println(message);
+        System.exit(-1);
+    }
+
+}
@@ -0,0 +1,50 @@
+package es.usj.crypto;
+
+import es.usj.crypto.enigma.analysis.NgramModel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static es.usj.crypto.ModeRunner.error;
+
+/**
+ * Saves the NgramModel of a corpus (--ngram-model)
+ */
+class NgramModelRunner implements ModeRunner {
+
+    // Letters of every n-gram when --order is not used
+    private static final int DEFAULT_NGRAM_ORDER = 4;
+
+    /**
+     * Train an n-gram model from the corpus in the input file and save it as a binary model file
+     */
+    @Override
+    public void run(Arguments args) throws IOException {
+
+        String modelFile = args.get("ngram-model");
+        if (modelFile.isEmpty()) {
+            error("Use 'ngram-model' argument to pass the binary model file to be created, " +
+                    "for instance --ngram-model=english.ngrams");
+        }
+
+        String inFile = args.get("input-file");
+        if (inFile == null) {
+            error("Use 'input-file' argument to pass a local TXT file name with the corpus, " +
+                    "for instance --input-file=corpus.txt");
+        }
+
+        String order = args.get("order");
+        if (order != null && !order.matches("[1-4]")) {
+            error("Use 'order' argument to select the number of letters of every n-gram (from 1 to 4), " +
+                    "for instance --order=4");
+        }
+
+        // Any byte is a valid ISO-8859-1 character, so corpora in other encodings are read too (accents are ignored)
+        String corpus = Files.readString(Path.of(inFile), StandardCharsets.ISO_8859_1);
+        NgramModel.train(corpus, order == null ? DEFAULT_NGRAM_ORDER : Integer.parseInt(order)).save(Path.of(modelFile));
+
+    }
+
+}
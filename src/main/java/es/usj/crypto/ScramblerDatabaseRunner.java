@@ -0,0 +1,32 @@
+package es.usj.crypto;
+
+import es.usj.crypto.enigma.ScramblerDatabase;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static es.usj.crypto.ModeRunner.error;
+
+/**
+ * Saves the ScramblerDatabase of every rotor order (--scrambler-database)
+ */
+class ScramblerDatabaseRunner implements ModeRunner {
+
+    /**
+     * Compute the rotors and reflector permutations of every rotor order and save them as a database file
+     */
+    @Override
+    public void run(Arguments args) throws IOException {
+
+        String databaseFile = args.get("scrambler-database");
+        if (databaseFile.isEmpty()) {
+            error("Use 'scrambler-database' argument to pass the database file to be created, " +
+                    "for instance --scrambler-database=scrambler.db");
+        }
+
+        ScramblerDatabase.write(Path.of(databaseFile), ReflectorConfiguration.REFLECTOR_DEFAULT);
+
+    }
+
+}
@@ -0,0 +1,123 @@
+package es.usj.crypto;
+
+import es.usj.crypto.enigma.ScramblerDatabase;
+import es.usj.crypto.enigma.analysis.KeyCandidate;
+import es.usj.crypto.enigma.analysis.NgramModel;
+import es.usj.crypto.enigma.analysis.PlugboardSolution;
+import es.usj.crypto.enigma.analysis.ShardedSearch;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static es.usj.crypto.ModeRunner.error;
+
+/**
+ * Runs a worker of a ShardedSearch (--search)
+ */
+class SearchRunner implements ModeRunner {
+
+    // Candidates of a key search when --results is not used
+    private static final int DEFAULT_RESULTS = 10;
+    // Shards of every rotor order in a key search when --shards-per-order is not used
+    private static final int DEFAULT_SHARDS_PER_ORDER = 4;
+    // Hill climbing runs solving the plugboard of every candidate when --restarts is not used
+    private static final int DEFAULT_RESTARTS = 4;
+
+    /**
+     * Run a worker of a sharded key search, the search is created when the directory has no search yet.
+     * Candidates are written to the standard output when every shard has been searched, sorted by the score of
+     * their plugboard solution when the search was created with an n-gram model
+     */
+    @Override
+    public void run(Arguments args) throws IOException {
+
+        String directory = args.get("search");
+        if (directory.isEmpty()) {
+            error("Use 'search' argument to pass the directory shared by the search workers, " +
+                    "for instance --search=/shared/search");
+        }
+
+        String results = args.get("results");
+        if (results != null && !results.matches("[1-9][0-9]*")) {
+            error("Use 'results' argument to select the number of candidates, for instance --results=10");
+        }
+
+        String shards = args.get("shards-per-order");
+        if (shards != null && !shards.matches("[1-9][0-9]*")) {
+            error("Use 'shards-per-order' argument to select the number of shards of every rotor order, " +
+                    "for instance --shards-per-order=4");
+        }
+
+        String restarts = args.get("restarts");
+        if (restarts != null && !restarts.matches("[1-9][0-9]*")) {
+            error("Use 'restarts' argument to select the number of hill climbing runs solving every plugboard, " +
+                    "for instance --restarts=4");
+        }
+
+        String model = args.get("model");
+        if (model != null && model.isEmpty()) {
+            error("Use 'model' argument to pass the n-gram model file solving the plugboard of the candidates, " +
+                    "for instance --model=english.ngrams");
+        }
+
+        String database = args.get("database");
+        if (database != null && database.isEmpty()) {
+            error("Use 'database' argument to pass the scrambler database file read by this worker, " +
+                    "for instance --database=scrambler.db");
+        }
+
+        String threads = args.get("threads");
+        if (threads != null && !threads.matches("[1-9][0-9]*")) {
+            error("Use 'threads' argument to select the number of threads searching every shard, " +
+                    "for instance --threads=4");
+        }
+
+        String inFile = args.get("input-file");
+        Path searchDirectory = Path.of(directory);
+        ShardedSearch search;
+        if (inFile != null) {
+            search = ShardedSearch.create(searchDirectory, Files.readString(Path.of(inFile)),
+                    results == null ? DEFAULT_RESULTS : Integer.parseInt(results),
+                    shards == null ? DEFAULT_SHARDS_PER_ORDER : Integer.parseInt(shards),
+                    model == null ? null : NgramModel.load(Path.of(model)),
+                    restarts == null ? DEFAULT_RESTARTS : Integer.parseInt(restarts));
+        } else if (Files.exists(searchDirectory)) {
+            search = ShardedSearch.open(searchDirectory);
+        } else {
+            error("Use 'input-file' argument to pass the cipher text when creating the search, " +
+                    "for instance --input-file=ciphertext.txt");
+            return;
+        }
+
+        if (database != null) {
+            search.setDatabase(ScramblerDatabase.open(Path.of(database), ReflectorConfiguration.REFLECTOR_DEFAULT));
+        }
+
+        ForkJoinPool pool = threads == null ? ForkJoinPool.commonPool() : new ForkJoinPool(Integer.parseInt(threads));
+        try {
+            int searched = search.work(ReflectorConfiguration.REFLECTOR_DEFAULT, pool);
+            System.out.println(searched + " shards searched, " +
+                    search.completedShards() + " of " + search.getShards() + " completed");
+        } finally {
+            pool.shutdown();
+        }
+
+        if (search.isComplete()) {
+            List<PlugboardSolution> solutions = search.mergeSolutions();
+            if (solutions.isEmpty()) {
+                for (KeyCandidate candidate : search.merge()) {
+                    System.out.println(candidate);
+                }
+            }
+            for (PlugboardSolution solution : solutions) {
+                System.out.println(solution.getKey() + " " + solution);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package es.usj.crypto;
+
+import org.springframework.boot.SpringApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static es.usj.crypto.ModeRunner.error;
+
+/**
+ * Starts the HTTP service of EnigmaApp (--server), the only mode creating the Spring context
+ */
+class ServerRunner implements ModeRunner {
+
+    /**
+     * Validate the server arguments and start the Spring application, the JVM keeps running until it's stopped
+     */
+    @Override
+    public void run(Arguments args) {
+
+        List<String> properties = new ArrayList<>();
+
+        String port = args.get("port");
+        if (port != null) {
+            if (!port.matches("[0-9]{1,5}")) {
+                error("Use 'port' argument to select the HTTP port (8080 by default), " +
+                        "for instance --port=8080");
+            }
+            properties.add("--port=" + port);
+        }
+
+        String threads = args.get("threads");
+        if (threads != null) {
+            if (!threads.matches("[1-9][0-9]*")) {
+                error("Use 'threads' argument to select the number of threads handling requests, " +
+                        "for instance --threads=4");
+            }
+            properties.add("--threads=" + threads);
+        }
+
+        SpringApplication.run(EnigmaApp.class, properties.toArray(new String[0]));
+
+    }
+
+}
@@ -0,0 +1,52 @@
+package es.usj.crypto.enigma;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for every text ciphered by a Machine
+ */
+@Name("es.usj.crypto.Cipher")
+@Label("Enigma Cipher")
+@Category("Enigma")
+@Description("Text ciphered by a Machine")
+class CipherEvent extends Event {
+
+    @Label("Characters")
+    long characters;
+
+    @Label("Letters")
+    long letters;
+
+    @Label("Parallel")
+    boolean parallel;
+
+    /**
+     * @return Event including the start time
+     */
+    static CipherEvent start() {
+        CipherEvent event = new CipherEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commit the event when it's enabled and the duration is over the threshold
+     * @param characters Characters in the text, including blank spaces
+     * @param letters Letters ciphered
+     * @param parallel True when the text was ciphered by several threads
+     */
+    void end(long characters, long letters, boolean parallel) {
+        end();
+        if (shouldCommit()) {
+            this.characters = characters;
+            this.letters = letters;
+            this.parallel = parallel;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package es.usj.crypto.enigma;
+
+import java.nio.ByteBuffer;
+
+import static es.usj.crypto.enigma.Machine.ALPHABET;
+
+/**
+ * Machine where the whole path for every rotor state has been precomputed
+ *
+ *     plugboard >> right rotor >> middle rotor >> left rotor >> reflector >> left rotor >> middle rotor >> right rotor >> plugboard
+ *
+ * Building the table costs 17,576 x 26 substitutions (about 457 KB), after that every character is ciphered
+ * with a state step and a single array load
+ *
+ * Use Machine.compile() to get an instance starting from the current Machine rotors position
+ */
+public class CompiledMachine {
+
+    private static final int SIZE = 26;
+
+    // Whole machine substitution for every rotor state, including plugboard
+    private final byte[] table;
+    // Rotor state reached from every rotor state when a letter is typed
+    private final int[] next;
+    // Current rotor state
+    private int state;
+
+    /**
+     * Compiled Machine settings
+     * @param plugboard Pair mapping for the alphabet characters
+     * @param scrambler Rotors and reflector substitution for every rotor state
+     * @param state Initial rotor state
+     */
+    CompiledMachine(Plugboard plugboard, ScramblerTable scrambler, int state) {
+
+        ByteBuffer permutations = scrambler.getPermutations();
+        this.table = new byte[permutations.capacity()];
+        for (int i = 0; i < table.length; i += SIZE) {
+            for (int input = 0; input < SIZE; input++) {
+                table[i + input] = (byte) plugboard.plugIndex(permutations.get(i + plugboard.plugIndex(input)));
+            }
+        }
+        this.next = scrambler.getNext();
+        this.state = state;
+
+    }
+
+    /**
+     * Cipher a plainText into a cipherText
+     * @param plainText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @return cipherText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     */
+    public String getCipheredText(String plainText) {
+
+        char[] cipherText = Machine.toPlainText(plainText).toCharArray();
+
+        int state = this.state;
+        for (int i = 0; i < cipherText.length; i++) {
+            int input = Machine.toIndex(cipherText[i]);
+            if (input >= 0) {
+                state = next[state];
+                cipherText[i] = ALPHABET.charAt(table[state * SIZE + input]);
+            }
+        }
+        this.state = state;
+
+        return new String(cipherText);
+
+    }
+
+}
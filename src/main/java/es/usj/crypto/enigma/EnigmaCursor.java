@@ -0,0 +1,90 @@
+package es.usj.crypto.enigma;
+
+import static es.usj.crypto.enigma.Machine.ALPHABET;
+
+/**
+ * Current rotors position for an EnigmaKey
+ *
+ * A cursor is not thread safe, but it's cheap: every thread or request should use its own cursor
+ * obtained from a shared EnigmaKey
+ */
+public class EnigmaCursor {
+
+    private final EnigmaKey key;
+    // Current rotor state as defined in ScramblerTable
+    private int state;
+    // Letters ciphered from the initial rotors position
+    private long letters;
+
+    EnigmaCursor(EnigmaKey key) {
+        this.key = key;
+        reset();
+    }
+
+    /**
+     * Move the rotors back to the initial rotors position of the key
+     */
+    public void reset() {
+        seek(0);
+    }
+
+    /**
+     * Move the rotors to the position reached after ciphering some number of letters from the initial rotors position
+     * @param letterIndex Number of letters ciphered from the initial rotors position
+     */
+    public void seek(long letterIndex) {
+        state = key.stateAfter(letterIndex);
+        letters = letterIndex;
+    }
+
+    /**
+     * Cipher a plainText into a cipherText
+     * @param plainText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @return cipherText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     */
+    public String getCipheredText(String plainText) {
+        char[] cipherText = Machine.toPlainText(plainText).toCharArray();
+        for (int i = 0; i < cipherText.length; i++) {
+            int input = Machine.toIndex(cipherText[i]);
+            if (input >= 0) {
+                cipherText[i] = ALPHABET.charAt(encipher(input));
+            }
+        }
+        return new String(cipherText);
+    }
+
+    /**
+     * Cipher in place a range of ASCII bytes: lower case letters are transformed to upper case,
+     * white spaces are skipped and any other character is rejected
+     * When some character is rejected, previous characters have been already ciphered
+     * @param text ASCII text including characters from the ALPHABET (upper or lower case) and blank spaces
+     * @param offset Index of the first byte to be ciphered
+     * @param length Number of bytes to be ciphered
+     */
+    public void encipher(byte[] text, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (!Machine.isBlank(text[i])) {
+                text[i] = (byte) ('A' + encipher(Machine.toLetterIndex(text[i])));
+            }
+        }
+    }
+
+    /**
+     * Rotate the rotors and cipher a letter
+     * @param input ALPHABET index of the plain letter
+     * @return ALPHABET index of the ciphered letter
+     */
+    int encipher(int input) {
+        state = EnigmaKey.step(state, key.getRightNotchOffset(), key.getMiddleNotchOffset());
+        letters++;
+        return key.encipher(input, state);
+    }
+
+    /**
+     * @return Letters ciphered from the initial rotors position
+     */
+    public long getLetters() {
+        return letters;
+    }
+
+}
@@ -0,0 +1,128 @@
+package es.usj.crypto.enigma;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Immutable Machine settings: plugboard, rotor order with initial rotor positions and reflector
+ *
+ * A key can be shared by any number of threads, every thread ciphers with its own EnigmaCursor holding the
+ * current rotors position. Creating and resetting a cursor doesn't validate the settings again
+ */
+public final class EnigmaKey {
+
+    private static final int SIZE = 26;
+
+    // Key configuration, rotors are private copies that are never rotated
+    private final Plugboard plugboard;
+    private final Rotor rightRotor;
+    private final Rotor middleRotor;
+    private final Rotor leftRotor;
+    private final Reflector reflector;
+
+    /**
+     * Key configuration, no rotor configuration repetition is allowed
+     * @param plugboard Pair mapping for the alphabet characters (only 10 pairings are accepted)
+     * @param rightRotor Rotor configuration and initial position to be placed in the right position
+     * @param middleRotor Rotor configuration and initial position to be placed in the middle position
+     * @param leftRotor Rotor configuration and initial position to be placed in the left position
+     * @param reflector Pair mapping for the alphabet characters (13 pairings are required)
+     */
+    public EnigmaKey(
+            Plugboard plugboard,
+            Rotor rightRotor,
+            Rotor middleRotor,
+            Rotor leftRotor,
+            Reflector reflector) {
+        assertTrue("Each rotor configuration should be different",
+                !leftRotor.equals(rightRotor) && !rightRotor.equals(middleRotor) && !middleRotor.equals(rightRotor));
+        this.plugboard = plugboard;
+        this.rightRotor = new Rotor(rightRotor);
+        this.middleRotor = new Rotor(middleRotor);
+        this.leftRotor = new Rotor(leftRotor);
+        this.reflector = reflector;
+    }
+
+    /**
+     * @return Cursor placed at the initial rotors position
+     */
+    public EnigmaCursor newCursor() {
+        return new EnigmaCursor(this);
+    }
+
+    /**
+     * Substitution of a letter for a rotors position
+     * @param input ALPHABET index of the plain letter
+     * @param state Rotor state index as defined in ScramblerTable
+     * @return ALPHABET index of the ciphered letter
+     */
+    int encipher(int input, int state) {
+        return encipher(input, state / (SIZE * SIZE), state / SIZE % SIZE, state % SIZE);
+    }
+
+    /**
+     * Substitution of a letter for a rotors position
+     * @param input ALPHABET index of the plain letter
+     * @param left Offset of the left rotor
+     * @param middle Offset of the middle rotor
+     * @param right Offset of the right rotor
+     * @return ALPHABET index of the ciphered letter
+     */
+    int encipher(int input, int left, int middle, int right) {
+        int output = plugboard.plugIndex(input);
+        output = rightRotor.forwardIndex(output, right);
+        output = middleRotor.forwardIndex(output, middle);
+        output = leftRotor.forwardIndex(output, left);
+        output = reflector.reflectIndex(output);
+        output = leftRotor.backwardIndex(output, left);
+        output = middleRotor.backwardIndex(output, middle);
+        output = rightRotor.backwardIndex(output, right);
+        return plugboard.plugIndex(output);
+    }
+
+    /**
+     * @param letterIndex Number of letters ciphered from the initial rotors position
+     * @return Rotor state index as defined in ScramblerTable
+     */
+    int stateAfter(long letterIndex) {
+        return Machine.stateAfter(rightRotor, middleRotor, leftRotor, letterIndex);
+    }
+
+    int getRightNotchOffset() {
+        return rightRotor.getNotchOffset();
+    }
+
+    int getMiddleNotchOffset() {
+        return middleRotor.getNotchOffset();
+    }
+
+    /**
+     * Rotors stepping when a letter is typed: right rotor is always rotated, middle and left rotors are rotated
+     * when the rotor to the right is at notch position after being rotated
+     * @param state Rotor state index as defined in ScramblerTable
+     * @param rightNotch Offset of the right rotor ring when the notch is at the first position
+     * @param middleNotch Offset of the middle rotor ring when the notch is at the first position
+     * @return Rotor state index after typing a letter
+     */
+    static int step(int state, int rightNotch, int middleNotch) {
+        int left = state / (SIZE * SIZE);
+        int middle = state / SIZE % SIZE;
+        int right = previous(state % SIZE);
+        if (right == rightNotch) {
+            middle = previous(middle);
+        }
+        if (middle == middleNotch) {
+            left = previous(left);
+        }
+        return ScramblerTable.state(left, middle, right);
+    }
+
+    /**
+     * Rotating the ring from ABCDE to EABCD moves the offset one position back
+     * @param offset Offset of the ring (0 .. 25)
+     * @return Offset of the ring after rotating it
+     */
+    static int previous(int offset) {
+        return offset == 0 ? SIZE - 1 : offset - 1;
+    }
+
+}
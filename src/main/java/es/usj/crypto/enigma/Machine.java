@@ -1,8 +1,16 @@
 package es.usj.crypto.enigma;
 
+import jdk.jfr.FlightRecorder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * This Machine takes a plainText string and returns a cipherText string performing following operations on each character:
@@ -30,6 +38,11 @@ public class Machine {
     // Accepted input alphabet
     public static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
 
+    private static final int SIZE = 26;
+
+    // Minimum number of characters in every chunk when ciphering in parallel
+    private static final int MIN_CHUNK_SIZE = 16 * 1024;
+
     // Machine configuration
     private final Plugboard plugboard;
     private final Rotor rightRotor;
@@ -37,6 +50,9 @@ public class Machine {
     private final Rotor leftRotor;
     private final Reflector reflector;
 
+    // Letters ciphered from the initial rotors position
+    private long letters;
+
     /**
      * Machine configuration, no rotor configuration repetition is allowed
      * @param plugboard Pair mapping for the alphabet characters (only 10 pairings are accepted)
@@ -60,6 +76,19 @@ public class Machine {
         this.reflector = reflector;
     }
 
+    /**
+     * Copy of a Machine with independent rotors, plugboard and reflector are shared as they are immutable
+     * @param machine Machine to be copied
+     */
+    private Machine(Machine machine) {
+        this.plugboard = machine.plugboard;
+        this.leftRotor = new Rotor(machine.leftRotor);
+        this.middleRotor = new Rotor(machine.middleRotor);
+        this.rightRotor = new Rotor(machine.rightRotor);
+        this.reflector = machine.reflector;
+        this.letters = machine.letters;
+    }
+
     /**
      * Cipher a plainText into a cipherText
      * @param plainText String that contains a sentence including characters from the Engine ALPHABET and spaces
@@ -67,46 +96,450 @@ public class Machine {
      */
     public String getCipheredText(String plainText) {
 
-        plainText = plainText.toUpperCase(Locale.ROOT);
-        assertTrue("Plain text includes characters not in the ALPHABET or not considered as blank space", plainText.matches("[A-Z\\t\\n\\f\\r\\s]+"));
+        CipherEvent event = startEvent();
+        long initialLetters = letters;
+        char[] cipherText = toPlainText(plainText).toCharArray();
+        cipher(cipherText, 0, cipherText.length);
+        endEvent(event, cipherText.length, letters - initialLetters, false);
+        return new String(cipherText);
 
-        StringBuilder cipherText = new StringBuilder();
+    }
+
+    /**
+     * Cipher a plainText into a cipherText splitting the text in chunks that are ciphered concurrently
+     * The position of every chunk is obtained from the number of letters in previous chunks,
+     * so the cipherText is the same than the one produced by getCipheredText(plainText)
+     * @param plainText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @param pool Pool of threads ciphering the chunks
+     * @return cipherText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     */
+    public String getCipheredText(String plainText, ForkJoinPool pool) {
+
+        CipherEvent event = startEvent();
+        long initialLetters = letters;
+        char[] cipherText = toPlainText(plainText).toCharArray();
+        cipher(0, cipherText.length, pool,
+                (from, to) -> countLetters(cipherText, from, to),
+                (machine, from, to) -> machine.cipher(cipherText, from, to));
+        endEvent(event, cipherText.length, letters - initialLetters, true);
+        return new String(cipherText);
+
+    }
 
-        for (char input : plainText.toCharArray()) {
+    /**
+     * Cipher in place a range of ASCII bytes in a single pass: lower case letters are transformed to upper case,
+     * white spaces are skipped and any other character is rejected
+     * When some character is rejected, previous characters have been already ciphered
+     * @param text ASCII text including characters from the ALPHABET (upper or lower case) and blank spaces
+     * @param offset Index of the first byte to be ciphered
+     * @param length Number of bytes to be ciphered
+     */
+    public void encipher(byte[] text, int offset, int length) {
+        CipherEvent event = startEvent();
+        long initialLetters = letters;
+        encipherRange(text, offset, offset + length);
+        endEvent(event, length, letters - initialLetters, false);
+    }
 
-            // Plugboard substitution
-            char output = plugboard.getPlug(input);
+    /**
+     * Cipher in place a range of characters in a single pass: lower case letters are transformed to upper case,
+     * white spaces are skipped and any other character is rejected
+     * When some character is rejected, previous characters have been already ciphered
+     * @param text Text including characters from the ALPHABET (upper or lower case) and blank spaces
+     * @param offset Index of the first character to be ciphered
+     * @param length Number of characters to be ciphered
+     */
+    public void encipher(char[] text, int offset, int length) {
+        CipherEvent event = startEvent();
+        long initialLetters = letters;
+        encipherRange(text, offset, offset + length);
+        endEvent(event, length, letters - initialLetters, false);
+    }
 
-            // Rotors position update when a letter is encrypted
-            if (ALPHABET.indexOf(input) >= 0) {
-                rightRotor.update(null);
-                middleRotor.update(rightRotor);
-                leftRotor.update(middleRotor);
+    private void encipherRange(byte[] text, int from, int end) {
+        int i = from;
+        while (i < end) {
+            // Runs of blank spaces are skipped without touching the rotors
+            while (i < end && isBlank(text[i])) {
+                i++;
+            }
+            if (i < end) {
+                text[i] = (byte) cipher(text[i]);
+                i++;
             }
+        }
+    }
 
-            // Rotor substitution (right-to-left)
-            output = rightRotor.forward(output);
-            output = middleRotor.forward(output);
-            output = leftRotor.forward(output);
+    private void encipherRange(char[] text, int from, int end) {
+        int i = from;
+        while (i < end) {
+            // Runs of blank spaces are skipped without touching the rotors
+            while (i < end && isBlank(text[i])) {
+                i++;
+            }
+            if (i < end) {
+                text[i] = (char) cipher(text[i]);
+                i++;
+            }
+        }
+    }
 
-            // Reflector substitution
-            output = reflector.getReflection(output);
+    /**
+     * Cipher in place the remaining ASCII bytes of a buffer, buffer position is moved to the limit
+     * @param buffer ASCII text including characters from the ALPHABET (upper or lower case) and blank spaces
+     */
+    public void encipher(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            encipher(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            CipherEvent event = startEvent();
+            long initialLetters = letters;
+            for (int i = buffer.position(); i < buffer.limit(); i++) {
+                byte c = buffer.get(i);
+                if (!isBlank(c)) {
+                    buffer.put(i, (byte) cipher(c));
+                }
+            }
+            endEvent(event, buffer.remaining(), letters - initialLetters, false);
+        }
+        buffer.position(buffer.limit());
+    }
 
-            // Rotor substitution (left-to-right)
-            output = leftRotor.backward(output);
-            output = middleRotor.backward(output);
-            output = rightRotor.backward(output);
+    /**
+     * Cipher in place a range of ASCII bytes splitting the range in chunks that are ciphered concurrently
+     * The output is the same than the one produced by encipher(text, offset, length)
+     * When some character is rejected, no character has been ciphered
+     * @param text ASCII text including characters from the ALPHABET (upper or lower case) and blank spaces
+     * @param offset Index of the first byte to be ciphered
+     * @param length Number of bytes to be ciphered
+     * @param pool Pool of threads ciphering the chunks
+     */
+    public void encipher(byte[] text, int offset, int length, ForkJoinPool pool) {
+        CipherEvent event = startEvent();
+        long initialLetters = letters;
+        cipher(offset, length, pool,
+                (from, to) -> countLetters(text, from, to),
+                (machine, from, to) -> machine.encipherRange(text, from, to));
+        endEvent(event, length, letters - initialLetters, true);
+    }
+
+    /**
+     * Loading a JFR event class costs hundreds of milliseconds, so events are only created when some recording has
+     * been started in the JVM (from command line, jcmd or the JFR API)
+     * @return Event including the start time, null when the Flight Recorder is not initialized
+     */
+    private static CipherEvent startEvent() {
+        return FlightRecorder.isInitialized() ? CipherEvent.start() : null;
+    }
 
-            // Plugboard substitution
-            output = plugboard.getPlug(output);
+    private static void endEvent(CipherEvent event, long characters, long letters, boolean parallel) {
+        if (event != null) {
+            event.end(characters, letters, parallel);
+        }
+    }
+
+    /**
+     * Counts the letters of a chunk of text
+     */
+    private interface LetterCounter {
+        long count(int from, int to);
+    }
+
+    /**
+     * Ciphers a chunk of text using a Machine placed at the chunk position
+     */
+    private interface ChunkCipher {
+        void cipher(Machine machine, int from, int to);
+    }
+
+    /**
+     * Cipher a text in chunks that are ciphered concurrently
+     * Letters of every chunk are counted in parallel, so every chunk is ciphered by an independent Machine
+     * placed at the chunk position. Finally rotors are moved to the position after the last chunk
+     * @param offset Index of the first character of the text
+     * @param length Number of characters of the text
+     * @param pool Pool of threads ciphering the chunks
+     * @param counter Letters counter for a chunk of the text
+     * @param cipher Cipher for a chunk of the text
+     */
+    private void cipher(int offset, int length, ForkJoinPool pool, LetterCounter counter, ChunkCipher cipher) {
 
-            // Save ciphered character
-            cipherText.append(output);
+        int chunks = (int) Math.max(1, Math.min(pool.getParallelism() * 4L, length / MIN_CHUNK_SIZE));
+        int chunkSize = (length + chunks - 1) / chunks;
 
+        // Letters in every chunk
+        long[] offsets = new long[chunks + 1];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = offset + chunk * chunkSize;
+            int to = Math.min(from + chunkSize, offset + length);
+            int index = chunk + 1;
+            tasks.add(ForkJoinTask.adapt(() -> offsets[index] = counter.count(from, to)));
         }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
 
-        return cipherText.toString();
+        // Letters before every chunk
+        offsets[0] = letters;
+        for (int chunk = 1; chunk <= chunks; chunk++) {
+            offsets[chunk] += offsets[chunk - 1];
+        }
+
+        // Every chunk is ciphered by an independent Machine placed at the chunk position
+        tasks.clear();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = offset + chunk * chunkSize;
+            int to = Math.min(from + chunkSize, offset + length);
+            long position = offsets[chunk];
+            tasks.add(ForkJoinTask.adapt(() -> {
+                Machine machine = new Machine(this);
+                machine.seek(position);
+                cipher.cipher(machine, from, to);
+            }));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        seek(offsets[chunks]);
+
+    }
+
+    /**
+     * Cipher in place a range of an upper case text, rotors are updated for every letter
+     * @param text Upper case text including characters from the ALPHABET and blank spaces
+     * @param from Index of the first character to be ciphered
+     * @param to Index after the last character to be ciphered
+     */
+    private void cipher(char[] text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            // Characters not in the ALPHABET (blank spaces) are neither substituted nor rotating the rotors
+            int input = toIndex(text[i]);
+            if (input >= 0) {
+                text[i] = ALPHABET.charAt(cipherIndex(input));
+            }
+        }
+    }
 
+    /**
+     * Cipher an upper or lower case ASCII letter
+     * @param c ASCII character, blank spaces are not accepted
+     * @return Upper case ciphered letter
+     */
+    private int cipher(int c) {
+        return 'A' + cipherIndex(toLetterIndex(c));
+    }
+
+    /**
+     * Cipher a letter, rotors are updated before the substitution
+     * @param input ALPHABET index of the plain letter
+     * @return ALPHABET index of the ciphered letter
+     */
+    private int cipherIndex(int input) {
+
+        // Rotors position update when a letter is encrypted
+        int state = EnigmaKey.step(
+                ScramblerTable.state(leftRotor.getOffset(), middleRotor.getOffset(), rightRotor.getOffset()),
+                rightRotor.getNotchOffset(), middleRotor.getNotchOffset());
+        leftRotor.setOffset(state / (SIZE * SIZE));
+        middleRotor.setOffset(state / SIZE % SIZE);
+        rightRotor.setOffset(state % SIZE);
+        letters++;
+
+        // Plugboard substitution
+        int output = plugboard.plugIndex(input);
+
+        // Rotor substitution (right-to-left)
+        output = rightRotor.forwardIndex(output);
+        output = middleRotor.forwardIndex(output);
+        output = leftRotor.forwardIndex(output);
+
+        // Reflector substitution
+        output = reflector.reflectIndex(output);
+
+        // Rotor substitution (left-to-right)
+        output = leftRotor.backwardIndex(output);
+        output = middleRotor.backwardIndex(output);
+        output = rightRotor.backwardIndex(output);
+
+        // Plugboard substitution
+        return plugboard.plugIndex(output);
+
+    }
+
+    private static long countLetters(char[] text, int from, int to) {
+        long count = 0;
+        for (int i = from; i < to; i++) {
+            if (toIndex(text[i]) >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the letters of a range of ASCII bytes, rejecting characters not in the ALPHABET or blank spaces
+     */
+    private static long countLetters(byte[] text, int from, int to) {
+        long count = 0;
+        for (int i = from; i < to; i++) {
+            int c = text[i];
+            if (!isBlank(c)) {
+                toLetterIndex(c);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Blank spaces accepted in texts, shared by the streams, file formats and cryptanalysis tools
+     * @param c Character
+     * @return True for white spaces accepted in plain texts: space, tab, line feed, vertical tab, form feed and carriage return
+     */
+    public static boolean isBlank(int c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /**
+     * @param c Character
+     * @return ALPHABET index of an upper or lower case ASCII letter, -1 for any other character
+     */
+    public static int letterIndex(int c) {
+        // Setting the lower case bit transforms upper case letters to lower case
+        int index = (c | 0x20) - 'a';
+        return index >= 0 && index < SIZE ? index : -1;
+    }
+
+    /**
+     * @param c Upper or lower case ASCII letter, any other character is rejected
+     * @return ALPHABET index of the letter
+     */
+    static int toLetterIndex(int c) {
+        // Setting the lower case bit transforms upper case letters to lower case
+        int input = (c | 0x20) - 'a';
+        if (input < 0 || input >= SIZE) {
+            fail("Plain text includes characters not in the ALPHABET or not considered as blank space");
+        }
+        return input;
+    }
+
+    /**
+     * Move the rotors to the position reached after ciphering some number of letters from the initial rotors position
+     * White spaces are not counted, as they don't rotate the rotors
+     * @param letterIndex Number of letters ciphered from the initial rotors position
+     */
+    public void seek(long letterIndex) {
+        int state = stateAfter(rightRotor, middleRotor, leftRotor, letterIndex);
+        leftRotor.setOffset(state / (SIZE * SIZE));
+        middleRotor.setOffset(state / SIZE % SIZE);
+        rightRotor.setOffset(state % SIZE);
+        letters = letterIndex;
+    }
+
+    /**
+     * @return Letters ciphered from the initial rotors position
+     */
+    public long getLetters() {
+        return letters;
+    }
+
+    /**
+     * Rotors position after ciphering some number of letters from the initial rotors position
+     * Current rotors position is not modified
+     * @param letterIndex Number of letters ciphered from the initial rotors position
+     * @return Position of left, middle and right rotors, for instance "ESF"
+     */
+    public String stateAt(long letterIndex) {
+        int state = stateAfter(rightRotor, middleRotor, leftRotor, letterIndex);
+        return new String(new char[] {
+                leftRotor.getPosition(state / (SIZE * SIZE)),
+                middleRotor.getPosition(state / SIZE % SIZE),
+                rightRotor.getPosition(state % SIZE)});
+    }
+
+    /**
+     * Computes the rotor state after some letters without stepping the rotors one by one
+     *
+     * Right rotor is rotated on every letter, so after n letters it's rotated n times
+     * Middle rotor is rotated every time the right rotor reaches the notch: on letter k0 and every 26 letters after that
+     * Left rotor is rotated on every letter while the middle rotor is at notch position: the middle rotor keeps
+     * every position during 26 consecutive letters (except the initial one, kept during k0 - 1 letters),
+     * so the number of left rotations is the number of letters typed while the middle rotor is at notch position
+     *
+     * @param rightRotor Rotor in the right position, only initial position and notch are used
+     * @param middleRotor Rotor in the middle position, only initial position and notch are used
+     * @param leftRotor Rotor in the left position, only initial position is used
+     * @param letterIndex Number of letters ciphered from the initial rotors position
+     * @return Rotor state index as defined in ScramblerTable
+     */
+    static int stateAfter(Rotor rightRotor, Rotor middleRotor, Rotor leftRotor, long letterIndex) {
+
+        assertTrue("Letter index should be 0 or more", letterIndex >= 0);
+
+        int right = rightRotor.getInitialOffset();
+        int middle = middleRotor.getInitialOffset();
+        int left = leftRotor.getInitialOffset();
+
+        // First letter rotating the middle rotor (1 .. 26)
+        long k0 = Math.floorMod(right - rightRotor.getNotchOffset(), SIZE);
+        if (k0 == 0) {
+            k0 = SIZE;
+        }
+        // Number of middle rotations
+        long middleSteps = letterIndex >= k0 ? (letterIndex - k0) / SIZE + 1 : 0;
+
+        // Number of middle rotations required to reach the notch position
+        long t = Math.floorMod(middle - middleRotor.getNotchOffset(), SIZE);
+        // Letters typed with the middle rotor at notch position in completed positions
+        long leftSteps = middleSteps > t ? ((middleSteps - 1 - t) / SIZE + 1) * SIZE : 0;
+        if (t == 0 && middleSteps > 0) {
+            // Initial middle position is kept only during k0 - 1 letters
+            leftSteps -= SIZE - (k0 - 1);
+        }
+        // Letters typed in current middle rotor position
+        if (middleSteps % SIZE == t) {
+            leftSteps += middleSteps == 0 ? letterIndex : letterIndex - (k0 + SIZE * (middleSteps - 1)) + 1;
+        }
+
+        return ScramblerTable.state(
+                Math.floorMod(left - leftSteps, SIZE),
+                Math.floorMod(middle - middleSteps, SIZE),
+                Math.floorMod(right - letterIndex, SIZE));
+
+    }
+
+    /**
+     * Build a compiled version of this Machine, starting from current rotors position
+     * The compiled Machine is independent from this one, so ciphering with any of them doesn't change the other
+     * @return Machine using a precomputed substitution table for every rotor state
+     */
+    public CompiledMachine compile() {
+        return new CompiledMachine(plugboard, new ScramblerTable(rightRotor, middleRotor, leftRotor, reflector), getState());
+    }
+
+    /**
+     * @return Current rotor state index as defined in ScramblerTable
+     */
+    int getState() {
+        return ScramblerTable.state(leftRotor.getOffset(), middleRotor.getOffset(), rightRotor.getOffset());
+    }
+
+    /**
+     * Validates a plain text and transforms it to upper case
+     * @param plainText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @return Upper case plain text
+     */
+    static String toPlainText(String plainText) {
+        plainText = plainText.toUpperCase(Locale.ROOT);
+        assertTrue("Plain text includes characters not in the ALPHABET or not considered as blank space", plainText.matches("[A-Z\\t\\n\\f\\r\\s]+"));
+        return plainText;
+    }
+
+    /**
+     * Get the position of a character in the ALPHABET
+     * @param c Character to be located
+     * @return Index of the character in the ALPHABET or -1 when the character is not part of the ALPHABET
+     */
+    static int toIndex(char c) {
+        return c >= 'A' && c <= 'Z' ? c - 'A' : -1;
     }
 
 }
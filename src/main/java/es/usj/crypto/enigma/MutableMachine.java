@@ -0,0 +1,133 @@
+package es.usj.crypto.enigma;
+
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+
+import static es.usj.crypto.enigma.Machine.ALPHABET;
+
+/**
+ * Machine that can be re-keyed in place, to try many keys with a single object
+ *
+ * Keys are set using primitive values: rotor numbers, rotor positions and an array of plugboard pairs.
+ * Every key is held by an EnigmaKey and ciphered with its cursor, rotor and reflector tables are shared
+ * as they are built only once for every configuration. Key validation can be disabled when keys are known
+ * to be valid, for instance when they are generated by a search
+ */
+public class MutableMachine {
+
+    private static final int SIZE = 26;
+
+    // Maximum number of plugboard cables
+    private static final int PLUGBOARD_PAIRINGS = 10;
+
+    private final Reflector reflector;
+
+    // Current key and rotors position
+    private EnigmaKey key;
+    private EnigmaCursor cursor;
+
+    // Validate every key before using it
+    private boolean validation = true;
+
+    /**
+     * Machine settings, a key should be set before ciphering
+     * @param reflectorConfiguration Pairing for the 26 characters of the ALPHABET
+     */
+    public MutableMachine(ReflectorConfiguration reflectorConfiguration) {
+        this.reflector = new Reflector(reflectorConfiguration);
+    }
+
+    /**
+     * Enable or disable the validation of the keys, enabled by default
+     * @param validation True to validate every key
+     */
+    public void setValidation(boolean validation) {
+        this.validation = validation;
+    }
+
+    /**
+     * Replace the key of the machine, rotors are placed at the initial rotor positions
+     * @param rightRotor Right rotor number (1-5)
+     * @param middleRotor Middle rotor number (1-5)
+     * @param leftRotor Left rotor number (1-5)
+     * @param rightPosition Right rotor initial position (A .. Z)
+     * @param middlePosition Middle rotor initial position (A .. Z)
+     * @param leftPosition Left rotor initial position (A .. Z)
+     * @param plugboardPairs ALPHABET indexes of the plugged letters, every pair of values is a cable:
+     *                       {0, 1, 2, 3} plugs A with B and C with D
+     * @throws IllegalArgumentException When validation is enabled and the key is not valid
+     */
+    public void setKey(
+            int rightRotor, int middleRotor, int leftRotor,
+            char rightPosition, char middlePosition, char leftPosition,
+            int[] plugboardPairs) {
+
+        if (validation) {
+            validate(rightRotor, middleRotor, leftRotor, rightPosition, middlePosition, leftPosition, plugboardPairs);
+        }
+
+        key = new EnigmaKey(
+                new Plugboard(plugboardPairs),
+                new Rotor(RotorConfiguration.getRotorConfiguration(rightRotor), rightPosition),
+                new Rotor(RotorConfiguration.getRotorConfiguration(middleRotor), middlePosition),
+                new Rotor(RotorConfiguration.getRotorConfiguration(leftRotor), leftPosition),
+                reflector);
+        cursor = key.newCursor();
+
+    }
+
+    private static void validate(
+            int rightRotor, int middleRotor, int leftRotor,
+            char rightPosition, char middlePosition, char leftPosition,
+            int[] plugboardPairs) {
+
+        int rotors = RotorConfiguration.values().length;
+        if (rightRotor < 1 || rightRotor > rotors || middleRotor < 1 || middleRotor > rotors ||
+                leftRotor < 1 || leftRotor > rotors) {
+            throw new IllegalArgumentException("Rotor number should be 1 to " + rotors);
+        }
+        if (leftRotor == rightRotor || rightRotor == middleRotor || middleRotor == leftRotor) {
+            throw new IllegalArgumentException("Each rotor configuration should be different");
+        }
+        if (Machine.toIndex(rightPosition) < 0 || Machine.toIndex(middlePosition) < 0 || Machine.toIndex(leftPosition) < 0) {
+            throw new IllegalArgumentException("Initial position should be A to Z");
+        }
+
+        if (plugboardPairs.length % 2 != 0 || plugboardPairs.length > PLUGBOARD_PAIRINGS * 2) {
+            throw new IllegalArgumentException("Plugboard accepts up to " + PLUGBOARD_PAIRINGS + " mappings");
+        }
+        int used = 0;
+        for (int letter : plugboardPairs) {
+            if (letter < 0 || letter >= SIZE) {
+                throw new IllegalArgumentException("Plugboard letter index should be 0 to 25, not " + letter);
+            }
+            if ((used & (1 << letter)) != 0) {
+                throw new IllegalArgumentException("Character " + ALPHABET.charAt(letter) + " is expected to be 0 or 1 time");
+            }
+            used |= 1 << letter;
+        }
+
+    }
+
+    /**
+     * Cipher letters, rotors are updated for every letter
+     * @param input ALPHABET index of every letter to be ciphered
+     * @param length Number of letters to be ciphered
+     * @param output Array receiving the ALPHABET index of every ciphered letter, can be the input array
+     */
+    public void encipher(byte[] input, int length, byte[] output) {
+        for (int i = 0; i < length; i++) {
+            output[i] = (byte) cursor.encipher(input[i]);
+        }
+    }
+
+    /**
+     * Cipher a plainText into a cipherText
+     * @param plainText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @return cipherText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     */
+    public String getCipheredText(String plainText) {
+        return cursor.getCipheredText(plainText);
+    }
+
+}
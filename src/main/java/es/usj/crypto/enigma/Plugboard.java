@@ -1,8 +1,6 @@
 package es.usj.crypto.enigma;
 
-import java.util.HashMap;
-import java.util.Map;
-
+import static es.usj.crypto.enigma.Machine.ALPHABET;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -15,7 +13,8 @@ public class Plugboard {
 
     private static final int PLUGBOARD_PAIRINGS = 10;
 
-    private final Map<Character, Character> mapping;
+    // Substitution table on ALPHABET indexes, not wired characters are mapped to themselves
+    private final int[] mapping;
 
     /**
      * Plugboard settings
@@ -23,25 +22,47 @@ public class Plugboard {
      */
     public Plugboard(String input) {
 
-        mapping = new HashMap<>();
+        mapping = new int[ALPHABET.length()];
+        for (int i = 0; i < mapping.length; i++) {
+            mapping[i] = i;
+        }
 
         if (input.length() > 0) {
 
-            for (int i = 0; i < Machine.ALPHABET.length(); i++) {
-                char c = Machine.ALPHABET.charAt(i);
+            for (int i = 0; i < ALPHABET.length(); i++) {
+                char c = ALPHABET.charAt(i);
                 long count = input.chars().filter(ch -> ch == c).count();
                 assertTrue("Character " + c + " is expected to be 0 or 1 time, not " + count, count == 0 || count == 1);
             }
             assertEquals("Plugboard accepts exactly " + PLUGBOARD_PAIRINGS + " mappings", PLUGBOARD_PAIRINGS, input.split(":").length);
             for (String reflection : input.split(":")) {
                 assertEquals("Mapping " + reflection + " should contains 2 characters", 2, reflection.length());
-                mapping.put(reflection.charAt(0), reflection.charAt(1));
-                mapping.put(reflection.charAt(1), reflection.charAt(0));
+                int first = Machine.toIndex(reflection.charAt(0));
+                int second = Machine.toIndex(reflection.charAt(1));
+                assertTrue("Mapping " + reflection + " should contains ALPHABET characters", first >= 0 && second >= 0);
+                mapping[first] = second;
+                mapping[second] = first;
             }
         }
 
     }
 
+    /**
+     * Plugboard settings from ALPHABET indexes, pairs are not validated
+     * @param pairs ALPHABET indexes of the plugged letters, every pair of values is a cable:
+     *              {0, 1, 2, 3} plugs A with B and C with D
+     */
+    Plugboard(int[] pairs) {
+        mapping = new int[ALPHABET.length()];
+        for (int i = 0; i < mapping.length; i++) {
+            mapping[i] = i;
+        }
+        for (int i = 0; i < pairs.length; i += 2) {
+            mapping[pairs[i]] = pairs[i + 1];
+            mapping[pairs[i + 1]] = pairs[i];
+        }
+    }
+
     /**
      * Returns replaced character or the input character if this is not part of the ALPHABET (to support spaces)
      * or if this is not included in the Plugboard setting
@@ -49,7 +70,17 @@ public class Plugboard {
      * @return Replaced character
      */
     public char getPlug(char input) {
-        return mapping.get(input) == null ? input : mapping.get(input);
+        int index = Machine.toIndex(input);
+        return index < 0 ? input : ALPHABET.charAt(mapping[index]);
+    }
+
+    /**
+     * Plugboard substitution on ALPHABET indexes
+     * @param index ALPHABET index of the character to be replaced
+     * @return ALPHABET index of the replaced character
+     */
+    int plugIndex(int index) {
+        return mapping[index];
     }
 
 }
@@ -2,9 +2,10 @@ package es.usj.crypto.enigma;
 
 import es.usj.crypto.enigma.constant.ReflectorConfiguration;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static es.usj.crypto.enigma.Machine.ALPHABET;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -13,7 +14,11 @@ import static org.junit.Assert.assertEquals;
  */
 public class Reflector {
 
-    private final Map<Character, Character> mapping;
+    // Reflection table for every reflector configuration already used, validated and built only once
+    private static final Map<ReflectorConfiguration, int[]> TABLES = new ConcurrentHashMap<>();
+
+    // Reflection table on ALPHABET indexes
+    private final int[] mapping;
 
     /**
      * Reflector settings
@@ -21,20 +26,25 @@ public class Reflector {
      */
     public Reflector(ReflectorConfiguration reflectorConfiguration) {
 
-        String input = reflectorConfiguration.getSequence();
+        mapping = TABLES.computeIfAbsent(reflectorConfiguration, configuration -> {
+
+            String input = configuration.getSequence();
 
-        for (int i = 0; i < Machine.ALPHABET.length(); i++) {
-            char c = Machine.ALPHABET.charAt(i);
-            long count = input.chars().filter(ch -> ch == c).count();
-            assertEquals( "Character " + c + " is expected to be only 1 time", 1, count);
-        }
+            for (int i = 0; i < ALPHABET.length(); i++) {
+                char c = ALPHABET.charAt(i);
+                long count = input.chars().filter(ch -> ch == c).count();
+                assertEquals( "Character " + c + " is expected to be only 1 time", 1, count);
+            }
 
-        mapping = new HashMap<>();
-        for (String reflection : input.split(":")) {
-            assertEquals("Mapping " + reflection + " should contains 2 characters", 2, reflection.length());
-            mapping.put(reflection.charAt(0), reflection.charAt(1));
-            mapping.put(reflection.charAt(1), reflection.charAt(0));
-        }
+            int[] mapping = new int[ALPHABET.length()];
+            for (String reflection : input.split(":")) {
+                assertEquals("Mapping " + reflection + " should contains 2 characters", 2, reflection.length());
+                mapping[Machine.toIndex(reflection.charAt(0))] = Machine.toIndex(reflection.charAt(1));
+                mapping[Machine.toIndex(reflection.charAt(1))] = Machine.toIndex(reflection.charAt(0));
+            }
+            return mapping;
+
+        });
 
     }
 
@@ -44,7 +54,17 @@ public class Reflector {
      * @return Reflected character
      */
     public char getReflection(char input) {
-        return (mapping.get(input) == null ? input : mapping.get(input));
+        int index = Machine.toIndex(input);
+        return index < 0 ? input : ALPHABET.charAt(mapping[index]);
+    }
+
+    /**
+     * Reflector substitution on ALPHABET indexes
+     * @param index ALPHABET index of the character to be reflected
+     * @return ALPHABET index of the reflected character
+     */
+    int reflectIndex(int index) {
+        return mapping[index];
     }
 
 }
@@ -2,7 +2,10 @@ package es.usj.crypto.enigma;
 
 import es.usj.crypto.enigma.constant.RotorConfiguration;
 
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static es.usj.crypto.enigma.Machine.ALPHABET;
 import static org.junit.Assert.assertEquals;
@@ -12,15 +15,26 @@ import static org.junit.Assert.assertTrue;
  * Each Rotor includes a 26-character sequence for the ring, including every character from the ALPHABET without repetitions
  * The Notch position, that makes the Rotor to rotate, is 1 character from the ALPHABET
  * The Rotor Position is the initial character of the ring sequence, is 1 character from the ALPHABET
+ *
+ * The ring is stored as forward and inverse permutation tables of ALPHABET indexes, rotation only changes an integer offset
  */
 public class Rotor {
 
-    // 26 character sequence including ALPHABET chars in random order with no repetition
-    private String ringSequence;
+    // Ring tables for every rotor configuration already used
+    private static final Map<RotorConfiguration, int[][]> TABLES = new ConcurrentHashMap<>();
+
+    // Ring sequence as ALPHABET indexes (26 characters in random order with no repetition)
+    private final int[] wiring;
+    // Inverse permutation of the ring sequence, inverse[wiring[i]] == i
+    private final int[] inverse;
     // Position of the notch in the rotor (enables rotation of rotor to the left)
     private final char notch;
+    // Offset of the ring when the notch is the first character of the ring
+    private final int notchOffset;
     // Initial position of the rotor
     private final char rotorPosition;
+    // Current offset of the ring, the first character of the rotated ring is wiring[offset]
+    private int offset;
 
     /**
      * Rotor settings
@@ -32,22 +46,56 @@ public class Rotor {
         assertTrue("Initial position should be A to Z", ALPHABET.indexOf(rotorPosition) != -1);
         this.rotorPosition = rotorPosition;
 
-        String input = rotorConfiguration.getRingSequence();
-        for (int i = 0; i < ALPHABET.length(); i++) {
-            char c = ALPHABET.charAt(i);
-            long count = input.chars().filter(ch -> ch == c).count();
-            assertEquals( "Character " + c + " is expected to be exactly 1 time", 1, count);
-        }
-        this.ringSequence = input;
+        int[][] tables = tables(rotorConfiguration);
+        this.wiring = tables[0];
+        this.inverse = tables[1];
 
         // Rotate the rotor to the initial rotor position
-        while (this.ringSequence.charAt(0) != this.rotorPosition) {
-            this.ringSequence = rotate(this.ringSequence);
-        }
+        this.offset = inverse[ALPHABET.indexOf(rotorPosition)];
 
-        assertTrue("Notch position should be A to Z", ALPHABET.indexOf(rotorConfiguration.getNotch()) != -1);
         this.notch = rotorConfiguration.getNotch();
+        this.notchOffset = inverse[ALPHABET.indexOf(notch)];
+
+    }
+
+    /**
+     * Ring tables of a rotor configuration, validated and built only once for every configuration
+     * @param rotorConfiguration Ring sequence and notch position
+     * @return Ring sequence as ALPHABET indexes and its inverse permutation
+     */
+    static int[][] tables(RotorConfiguration rotorConfiguration) {
+        return TABLES.computeIfAbsent(rotorConfiguration, configuration -> {
+
+            String input = configuration.getRingSequence();
+            for (int i = 0; i < ALPHABET.length(); i++) {
+                char c = ALPHABET.charAt(i);
+                long count = input.chars().filter(ch -> ch == c).count();
+                assertEquals( "Character " + c + " is expected to be exactly 1 time", 1, count);
+            }
+            assertTrue("Notch position should be A to Z", ALPHABET.indexOf(configuration.getNotch()) != -1);
+
+            int[] wiring = new int[ALPHABET.length()];
+            int[] inverse = new int[ALPHABET.length()];
+            for (int i = 0; i < wiring.length; i++) {
+                wiring[i] = ALPHABET.indexOf(input.charAt(i));
+                inverse[wiring[i]] = i;
+            }
+            return new int[][] {wiring, inverse};
+
+        });
+    }
 
+    /**
+     * Copy of a Rotor, the ring tables are shared as they are never modified
+     * @param rotor Rotor to be copied
+     */
+    Rotor(Rotor rotor) {
+        this.wiring = rotor.wiring;
+        this.inverse = rotor.inverse;
+        this.notch = rotor.notch;
+        this.notchOffset = rotor.notchOffset;
+        this.rotorPosition = rotor.rotorPosition;
+        this.offset = rotor.offset;
     }
 
     /**
@@ -56,9 +104,9 @@ public class Rotor {
      * @return character substitution
      */
     public char forward(char c) {
-        int index = ALPHABET.indexOf(c);
+        int index = Machine.toIndex(c);
         if (index >= 0) {
-            return ringSequence.charAt(index);
+            return ALPHABET.charAt(forwardIndex(index));
         } else {
             return c;
         }
@@ -70,9 +118,9 @@ public class Rotor {
      * @return character substitution
      */
     public char backward(char c) {
-        int index = ringSequence.indexOf(c);
+        int index = Machine.toIndex(c);
         if (index >= 0) {
-            return ALPHABET.charAt(index);
+            return ALPHABET.charAt(backwardIndex(index));
         } else {
             return c;
         }
@@ -83,18 +131,94 @@ public class Rotor {
      * @param rightRotor Rotor to the right
      */
     public void update(Rotor rightRotor) {
-        if (rightRotor == null || rightRotor.ringSequence.charAt(0) == rightRotor.notch) {
-            ringSequence = rotate(ringSequence);
+        if (rightRotor == null || rightRotor.offset == rightRotor.notchOffset) {
+            offset = EnigmaKey.previous(offset);
         }
     }
 
     /**
-     * Rotates the ring of the Rotor, from ABCDE to EABCD
-     * @param original Current ring sequence of the rotor
-     * @return Rotated ring sequence
+     * Forward substitution on ALPHABET indexes
+     * @param index ALPHABET index of the plain character
+     * @return ALPHABET index of the substituted character
+     */
+    int forwardIndex(int index) {
+        return forwardIndex(index, offset);
+    }
+
+    /**
+     * Forward substitution on ALPHABET indexes for the ring rotated to some offset
+     * @param index ALPHABET index of the plain character
+     * @param offset Offset of the ring (0 .. 25)
+     * @return ALPHABET index of the substituted character
+     */
+    int forwardIndex(int index, int offset) {
+        int i = index + offset;
+        return wiring[i >= wiring.length ? i - wiring.length : i];
+    }
+
+    /**
+     * Backward substitution on ALPHABET indexes
+     * @param index ALPHABET index of the plain character
+     * @return ALPHABET index of the substituted character
+     */
+    int backwardIndex(int index) {
+        return backwardIndex(index, offset);
+    }
+
+    /**
+     * Backward substitution on ALPHABET indexes for the ring rotated to some offset
+     * @param index ALPHABET index of the plain character
+     * @param offset Offset of the ring (0 .. 25)
+     * @return ALPHABET index of the substituted character
+     */
+    int backwardIndex(int index, int offset) {
+        int i = inverse[index] - offset;
+        return i < 0 ? i + wiring.length : i;
+    }
+
+    /**
+     * @return Current offset of the ring (0 .. 25)
+     */
+    int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Rotate the ring to some offset
+     * @param offset Offset of the ring (0 .. 25)
+     */
+    void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * @return Offset of the ring at the initial rotor position
+     */
+    int getInitialOffset() {
+        return getOffset(rotorPosition);
+    }
+
+    /**
+     * @param position Rotor position (A .. Z)
+     * @return Offset of the ring when the position is the first character of the ring
+     */
+    int getOffset(char position) {
+        return inverse[ALPHABET.indexOf(position)];
+    }
+
+    /**
+     * @param offset Offset of the ring (0 .. 25)
+     * @return Rotor position (first character of the ring) for the offset
+     */
+    char getPosition(int offset) {
+        return ALPHABET.charAt(wiring[offset]);
+    }
+
+    /**
+     * @return Offset of the ring when the notch is at the first position of the ring
      */
-    private static String rotate(String original) {
-        return original.substring(original.length() - 1) + original.substring(0, original.length() - 1);
+    int getNotchOffset() {
+        return notchOffset;
     }
 
     @Override
@@ -102,11 +226,11 @@ public class Rotor {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Rotor rotor = (Rotor) o;
-        return rotorPosition == rotor.rotorPosition &&  Objects.equals(ringSequence, rotor.ringSequence) && Objects.equals(notch, rotor.notch);
+        return rotorPosition == rotor.rotorPosition && offset == rotor.offset && notch == rotor.notch && Arrays.equals(wiring, rotor.wiring);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(ringSequence, notch, rotorPosition);
+        return Objects.hash(Arrays.hashCode(wiring), offset, notch, rotorPosition);
     }
 }
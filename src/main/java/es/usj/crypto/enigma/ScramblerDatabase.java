@@ -0,0 +1,208 @@
+package es.usj.crypto.enigma;
+
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Rotors and reflector permutations (no plugboard) of every rotor order and rotor state, saved into a binary file
+ *
+ * The file is memory mapped when opened, so every process reading the same file shares a single copy from the
+ * page cache and no permutation is computed. The file is a 32 bytes header followed by the ScramblerTable
+ * permutations of every rotor order (60 orders x 17,576 states x 26 letters, about 27 MB)
+ *     magic "ENSC" | version | rotors | orders | states | letters | configurations CRC32 (8 bytes)
+ *
+ * Rotor orders are sorted by right, middle and left rotor numbers. The CRC32 of the rotor and reflector
+ * configurations is checked when opening the file, so a file built for other configurations is rejected
+ */
+public final class ScramblerDatabase {
+
+    private static final int SIZE = 26;
+
+    // First bytes of a database file, "ENSC" in ASCII
+    private static final int MAGIC = 0x454E5343;
+    // Version of the database file layout
+    private static final int VERSION = 1;
+    // Bytes before the permutations in a database file
+    private static final int HEADER_SIZE = 32;
+
+    // Number of rotor configurations
+    private static final int ROTORS = RotorConfiguration.values().length;
+    // Index in the file of every rotor order, ORDER_INDEX[((right - 1) * 5 + middle - 1) * 5 + left - 1] or -1
+    private static final int[] ORDER_INDEX = new int[ROTORS * ROTORS * ROTORS];
+    // Number of rotor orders with no repetition
+    private static final int ORDERS;
+
+    static {
+        int orders = 0;
+        for (int right = 1; right <= ROTORS; right++) {
+            for (int middle = 1; middle <= ROTORS; middle++) {
+                for (int left = 1; left <= ROTORS; left++) {
+                    boolean valid = right != middle && middle != left && left != right;
+                    ORDER_INDEX[((right - 1) * ROTORS + middle - 1) * ROTORS + left - 1] = valid ? orders++ : -1;
+                }
+            }
+        }
+        ORDERS = orders;
+    }
+
+    // Mapped permutations, read only
+    private final ByteBuffer permutations;
+    // Reflector configuration checked when the file was opened
+    private final ReflectorConfiguration reflector;
+
+    private ScramblerDatabase(ByteBuffer permutations, ReflectorConfiguration reflector) {
+        this.permutations = permutations;
+        this.reflector = reflector;
+    }
+
+    /**
+     * Compute the permutations of every rotor order and save them into a database file
+     * The file is written under a temporary name and then moved, so readers never map a partial database
+     * @param file Database file to be created or replaced
+     * @param reflector Reflector configuration used by the Machine
+     * @throws IOException when the file can't be written
+     */
+    public static void write(Path file, ReflectorConfiguration reflector) throws IOException {
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putInt(ROTORS).putInt(ORDERS)
+                        .putInt(ScramblerTable.STATES).putInt(SIZE).putLong(checksum(reflector));
+                write(channel, header.flip());
+
+                for (int right = 1; right <= ROTORS; right++) {
+                    for (int middle = 1; middle <= ROTORS; middle++) {
+                        for (int left = 1; left <= ROTORS; left++) {
+                            if (right != middle && middle != left && left != right) {
+                                write(channel, ScramblerTable.of(
+                                        RotorConfiguration.getRotorConfiguration(right),
+                                        RotorConfiguration.getRotorConfiguration(middle),
+                                        RotorConfiguration.getRotorConfiguration(left),
+                                        reflector).getPermutations());
+                            }
+                        }
+                    }
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Open a database saved with write(), the file is mapped in memory and read on demand
+     * The mapping is read only and stays valid after the file is closed
+     * @param file Database file
+     * @param reflector Reflector configuration used by the Machine, should be the one used to write the file
+     * @return Database reading the permutations from the file
+     * @throws IOException when the file can't be read
+     */
+    public static ScramblerDatabase open(Path file, ReflectorConfiguration reflector) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            assertTrue("Scrambler database file " + file + " is too short", channel.size() >= HEADER_SIZE);
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            assertEquals("File " + file + " is not a scrambler database", MAGIC, mapped.getInt(0));
+            assertEquals("Scrambler database file version is not supported", VERSION, mapped.getInt(4));
+            assertTrue("Scrambler database file " + file + " was built for other rotors or reflector",
+                    mapped.getInt(8) == ROTORS && mapped.getInt(12) == ORDERS &&
+                    mapped.getInt(16) == ScramblerTable.STATES && mapped.getInt(20) == SIZE &&
+                    mapped.getLong(24) == checksum(reflector));
+            assertEquals("Scrambler database file " + file + " size doesn't match the header",
+                    HEADER_SIZE + (long) ORDERS * ScramblerTable.STATES * SIZE, channel.size());
+
+            return new ScramblerDatabase(mapped.position(HEADER_SIZE).slice(), reflector);
+
+        }
+
+    }
+
+    /**
+     * Substitution of a character at some rotor state of a rotor order, read from the file
+     * @param rightRotor Right rotor number (1-5)
+     * @param middleRotor Middle rotor number (1-5)
+     * @param leftRotor Left rotor number (1-5)
+     * @param state Rotor state index, as defined in ScramblerTable
+     * @param index ALPHABET index of the input character
+     * @return ALPHABET index of the output character
+     */
+    public int substitute(int rightRotor, int middleRotor, int leftRotor, int state, int index) {
+        return permutations.get((orderIndex(rightRotor, middleRotor, leftRotor) * ScramblerTable.STATES + state) * SIZE + index);
+    }
+
+    /**
+     * Table of a rotor order reading the permutations from the mapped file, nothing is copied to the heap
+     * @param rightRotor Right rotor number (1-5)
+     * @param middleRotor Middle rotor number (1-5)
+     * @param leftRotor Left rotor number (1-5)
+     * @return Substitution table for every rotor state
+     */
+    public ScramblerTable table(int rightRotor, int middleRotor, int leftRotor) {
+        int length = ScramblerTable.STATES * SIZE;
+        int offset = orderIndex(rightRotor, middleRotor, leftRotor) * length;
+        // Position of a duplicate is not shared, so tables can be created by several threads at the same time
+        ByteBuffer table = permutations.duplicate().position(offset).limit(offset + length).slice();
+        return new ScramblerTable(
+                new Rotor(RotorConfiguration.getRotorConfiguration(rightRotor), 'A'),
+                new Rotor(RotorConfiguration.getRotorConfiguration(middleRotor), 'A'),
+                new Rotor(RotorConfiguration.getRotorConfiguration(leftRotor), 'A'),
+                table);
+    }
+
+    /**
+     * @return Reflector configuration of the permutations
+     */
+    public ReflectorConfiguration getReflector() {
+        return reflector;
+    }
+
+    private static int orderIndex(int rightRotor, int middleRotor, int leftRotor) {
+        assertTrue("Rotor number should be 1 to " + ROTORS,
+                rightRotor >= 1 && rightRotor <= ROTORS &&
+                middleRotor >= 1 && middleRotor <= ROTORS &&
+                leftRotor >= 1 && leftRotor <= ROTORS);
+        int index = ORDER_INDEX[((rightRotor - 1) * ROTORS + middleRotor - 1) * ROTORS + leftRotor - 1];
+        assertTrue("Each rotor configuration should be different", index >= 0);
+        return index;
+    }
+
+    /**
+     * CRC32 of the wiring and notch of every rotor configuration and the reflector pairing
+     */
+    private static long checksum(ReflectorConfiguration reflector) {
+        CRC32 crc = new CRC32();
+        for (RotorConfiguration rotor : RotorConfiguration.values()) {
+            crc.update((rotor.getRingSequence() + rotor.getNotch()).getBytes(StandardCharsets.US_ASCII));
+        }
+        crc.update(reflector.getSequence().getBytes(StandardCharsets.US_ASCII));
+        return crc.getValue();
+    }
+
+}
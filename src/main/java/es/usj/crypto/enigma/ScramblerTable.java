@@ -0,0 +1,200 @@
+package es.usj.crypto.enigma;
+
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+
+import java.nio.ByteBuffer;
+
+import static es.usj.crypto.enigma.Machine.ALPHABET;
+
+/**
+ * Precomputed substitution of the rotors and the reflector (no plugboard) for every rotor state
+ *
+ * A rotor state is the combination of the three ring offsets, expressed as a single index:
+ *     state = left offset * 676 + middle offset * 26 + right offset
+ *
+ * For every state the table includes the 26 characters permutation of the path
+ *     right rotor >> middle rotor >> left rotor >> reflector >> left rotor >> middle rotor >> right rotor
+ * and the state reached after the next letter is typed
+ *
+ * Permutations are read from a ByteBuffer, so tables of a ScramblerDatabase read the mapped file directly
+ */
+public final class ScramblerTable {
+
+    // Number of different rotor states (26 x 26 x 26)
+    public static final int STATES = 17576;
+
+    private static final int SIZE = 26;
+
+    // Permutation of every rotor state, the substitution of index i at state s is permutations.get(s * 26 + i)
+    private final ByteBuffer permutations;
+    // Rotor state reached from every rotor state when a letter is typed
+    private final int[] next;
+    // Rotors used to translate rotor states into rotor positions
+    private final Rotor rightRotor;
+    private final Rotor middleRotor;
+    private final Rotor leftRotor;
+
+    /**
+     * Builds the table for a rotor order and reflector, rotor offsets are ignored
+     * @param rightRotor Rotor placed in the right position
+     * @param middleRotor Rotor placed in the middle position
+     * @param leftRotor Rotor placed in the left position
+     * @param reflector Reflector
+     */
+    ScramblerTable(Rotor rightRotor, Rotor middleRotor, Rotor leftRotor, Reflector reflector) {
+        this(rightRotor, middleRotor, leftRotor,
+                ByteBuffer.wrap(permutations(rightRotor, middleRotor, leftRotor, reflector)));
+    }
+
+    /**
+     * Builds the table for a rotor order from permutations already computed, only the rotor stepping is computed
+     * @param rightRotor Rotor placed in the right position
+     * @param middleRotor Rotor placed in the middle position
+     * @param leftRotor Rotor placed in the left position
+     * @param permutations Permutation of every rotor state, the substitution of index i at state s is
+     *                     permutations.get(s * 26 + i), only absolute reads are used so the buffer is not copied
+     */
+    ScramblerTable(Rotor rightRotor, Rotor middleRotor, Rotor leftRotor, ByteBuffer permutations) {
+
+        this.rightRotor = new Rotor(rightRotor);
+        this.middleRotor = new Rotor(middleRotor);
+        this.leftRotor = new Rotor(leftRotor);
+        this.permutations = permutations;
+        next = new int[STATES];
+
+        for (int state = 0; state < STATES; state++) {
+            next[state] = EnigmaKey.step(state, rightRotor.getNotchOffset(), middleRotor.getNotchOffset());
+        }
+
+    }
+
+    private static byte[] permutations(Rotor rightRotor, Rotor middleRotor, Rotor leftRotor, Reflector reflector) {
+
+        byte[] permutations = new byte[STATES * SIZE];
+        for (int left = 0; left < SIZE; left++) {
+            for (int middle = 0; middle < SIZE; middle++) {
+                for (int right = 0; right < SIZE; right++) {
+                    int state = state(left, middle, right);
+                    for (int input = 0; input < ALPHABET.length(); input++) {
+                        int output = rightRotor.forwardIndex(input, right);
+                        output = middleRotor.forwardIndex(output, middle);
+                        output = leftRotor.forwardIndex(output, left);
+                        output = reflector.reflectIndex(output);
+                        output = leftRotor.backwardIndex(output, left);
+                        output = middleRotor.backwardIndex(output, middle);
+                        output = rightRotor.backwardIndex(output, right);
+                        permutations[state * SIZE + input] = (byte) output;
+                    }
+                }
+            }
+        }
+        return permutations;
+
+    }
+
+    /**
+     * Builds the table for a rotor order and reflector
+     * @param rightRotor Rotor configuration placed in the right position
+     * @param middleRotor Rotor configuration placed in the middle position
+     * @param leftRotor Rotor configuration placed in the left position
+     * @param reflector Reflector configuration
+     * @return Substitution table for every rotor state
+     */
+    public static ScramblerTable of(
+            RotorConfiguration rightRotor,
+            RotorConfiguration middleRotor,
+            RotorConfiguration leftRotor,
+            ReflectorConfiguration reflector) {
+        return new ScramblerTable(
+                new Rotor(rightRotor, 'A'),
+                new Rotor(middleRotor, 'A'),
+                new Rotor(leftRotor, 'A'),
+                new Reflector(reflector));
+    }
+
+    /**
+     * Rotor state index for a combination of ring offsets
+     * @param left Offset of the left rotor (0 .. 25)
+     * @param middle Offset of the middle rotor (0 .. 25)
+     * @param right Offset of the right rotor (0 .. 25)
+     * @return Rotor state index (0 .. 17575)
+     */
+    public static int state(int left, int middle, int right) {
+        return (left * SIZE + middle) * SIZE + right;
+    }
+
+    /**
+     * Substitution of a character at some rotor state
+     * @param state Rotor state index
+     * @param index ALPHABET index of the input character
+     * @return ALPHABET index of the output character
+     */
+    public int substitute(int state, int index) {
+        return permutations.get(state * SIZE + index);
+    }
+
+    /**
+     * Rotor state reached when a letter is typed
+     * @param state Current rotor state index
+     * @return Next rotor state index
+     */
+    public int next(int state) {
+        return next[state];
+    }
+
+    /**
+     * Rotor state index for a combination of rotor positions
+     * @param left Position of the left rotor (A .. Z)
+     * @param middle Position of the middle rotor (A .. Z)
+     * @param right Position of the right rotor (A .. Z)
+     * @return Rotor state index (0 .. 17575)
+     */
+    public int stateOf(char left, char middle, char right) {
+        return state(leftRotor.getOffset(left), middleRotor.getOffset(middle), rightRotor.getOffset(right));
+    }
+
+    /**
+     * Rotor positions for a rotor state index
+     * @param state Rotor state index (0 .. 17575)
+     * @return Position of left, middle and right rotors, for instance "ESF"
+     */
+    public String positions(int state) {
+        return positions(rightRotor, middleRotor, leftRotor, state);
+    }
+
+    /**
+     * Rotor positions for a rotor state index of a rotor order, without building its table
+     * @param rightRotor Rotor configuration placed in the right position
+     * @param middleRotor Rotor configuration placed in the middle position
+     * @param leftRotor Rotor configuration placed in the left position
+     * @param state Rotor state index (0 .. 17575)
+     * @return Position of left, middle and right rotors, for instance "ESF"
+     */
+    public static String positions(
+            RotorConfiguration rightRotor,
+            RotorConfiguration middleRotor,
+            RotorConfiguration leftRotor,
+            int state) {
+        return positions(new Rotor(rightRotor, 'A'), new Rotor(middleRotor, 'A'), new Rotor(leftRotor, 'A'), state);
+    }
+
+    private static String positions(Rotor rightRotor, Rotor middleRotor, Rotor leftRotor, int state) {
+        return new String(new char[] {
+                leftRotor.getPosition(state / (SIZE * SIZE)),
+                middleRotor.getPosition(state / SIZE % SIZE),
+                rightRotor.getPosition(state % SIZE)});
+    }
+
+    /**
+     * @return Read only view of the permutations, positioned at the first rotor state
+     */
+    ByteBuffer getPermutations() {
+        return permutations.asReadOnlyBuffer();
+    }
+
+    int[] getNext() {
+        return next;
+    }
+
+}
@@ -0,0 +1,192 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.Machine;
+import es.usj.crypto.enigma.ScramblerDatabase;
+import es.usj.crypto.enigma.ScramblerTable;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Known plain text attack in the style of the Turing-Welchman Bombe
+ *
+ * A crib (known plain text) aligned with the cipher text builds a Menu of letter pairs. For every rotor order and
+ * initial rotor positions, the test letter of the menu is assumed to be plugged to every letter of the ALPHABET:
+ * as the plugboard is applied before and after the rotors, if letter a is plugged to x, then every letter b linked
+ * to a at position k is plugged to the substitution of x by the rotors at position k. These implications are
+ * propagated through the menu (including the symmetry of the plugboard, as the diagonal board did) until some
+ * letter is plugged to two different letters or more than 10 cables are required. Hypotheses with no contradiction
+ * are reported as stops
+ *
+ * Rotor substitutions are taken from the ScramblerTable of every rotor order, initial positions are tested in parallel
+ */
+public class Bombe {
+
+    private static final int SIZE = 26;
+
+    private final ReflectorConfiguration reflector;
+    private final ForkJoinPool pool;
+    // Permutations of every rotor order, null when they are computed
+    private ScramblerDatabase database;
+
+    /**
+     * Bombe settings
+     * @param reflector Reflector configuration used by the Machine
+     * @param pool Pool of threads testing the initial rotor positions
+     */
+    public Bombe(ReflectorConfiguration reflector, ForkJoinPool pool) {
+        this.reflector = reflector;
+        this.pool = pool;
+    }
+
+    /**
+     * Read the rotor and reflector permutations from a database instead of computing them for every rotor order
+     * @param database Database opened for the reflector of the Bombe, null to compute the permutations
+     */
+    public void setDatabase(ScramblerDatabase database) {
+        KeySearch.checkDatabase(database, reflector);
+        this.database = database;
+    }
+
+    /**
+     * Test every rotor order and initial rotor positions for a crib
+     * @param cipherText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @param crib Known plain text of part of the message
+     * @param offset Letter position of the crib in the cipher text, blank spaces are not counted
+     * @return Rotor settings and deduced plugboard pairings without contradictions
+     */
+    public List<BombeStop> run(CharSequence cipherText, CharSequence crib, int offset) {
+
+        Menu menu = new Menu(Letters.toIndexes(cipherText), Letters.toIndexes(crib), offset);
+
+        List<BombeStop> stops = new ArrayList<>();
+        for (int[] order : KeySearch.rotorOrders()) {
+            ScramblerTable table = KeySearch.table(order, reflector, database);
+            stops.addAll(pool.submit(() -> IntStream.range(0, ScramblerTable.STATES)
+                    .parallel()
+                    .mapToObj(start -> ScramblerState.get().test(menu, table, order, start))
+                    .flatMap(List::stream)
+                    .collect(Collectors.toList()))
+                    .join());
+        }
+        return stops;
+
+    }
+
+    /**
+     * Buffers reused by every rotor position tested by a thread
+     */
+    private static final class ScramblerState {
+
+        private static final ThreadLocal<ScramblerState> BUFFERS = ThreadLocal.withInitial(ScramblerState::new);
+
+        // Rotor state at every menu link
+        private int[] states = new int[0];
+        // Letter plugged to every letter, -1 when unknown
+        private final int[] partner = new int[SIZE];
+        // Letters with a new partner, pending to be propagated through the menu
+        private final int[] queue = new int[SIZE];
+        private int head;
+        private int tail;
+        private int pairings;
+
+        static ScramblerState get() {
+            return BUFFERS.get();
+        }
+
+        List<BombeStop> test(Menu menu, ScramblerTable table, int[] order, int start) {
+
+            if (states.length < menu.positions.length) {
+                states = new int[menu.positions.length];
+            }
+            int state = start;
+            int link = 0;
+            for (int position = 0; position <= menu.lastPosition; position++) {
+                state = table.next(state);
+                if (position == menu.positions[link]) {
+                    states[link++] = state;
+                }
+            }
+
+            List<BombeStop> stops = List.of();
+            for (int hypothesis = 0; hypothesis < SIZE; hypothesis++) {
+                if (propagate(menu, table, hypothesis)) {
+                    if (stops.isEmpty()) {
+                        stops = new ArrayList<>();
+                    }
+                    stops.add(new BombeStop(
+                            new KeyCandidate(order[0], order[1], order[2], table.positions(start), 0),
+                            plugboard()));
+                }
+            }
+            return stops;
+
+        }
+
+        private boolean propagate(Menu menu, ScramblerTable table, int hypothesis) {
+
+            for (int i = 0; i < SIZE; i++) {
+                partner[i] = -1;
+            }
+            head = 0;
+            tail = 0;
+            pairings = 0;
+
+            if (!plug(menu.testLetter, hypothesis)) {
+                return false;
+            }
+            while (head < tail) {
+                int letter = queue[head++];
+                int plugged = partner[letter];
+                int[] links = menu.links[letter];
+                for (int i = 0; i < links.length; i += 2) {
+                    if (!plug(links[i], table.substitute(states[links[i + 1]], plugged))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+
+        }
+
+        /**
+         * Plug two letters together
+         * @return False when any of the letters is already plugged to another letter or no cables are left
+         */
+        private boolean plug(int a, int b) {
+            if (partner[a] == b) {
+                return true;
+            }
+            if (partner[a] != -1 || partner[b] != -1) {
+                return false;
+            }
+            partner[a] = b;
+            partner[b] = a;
+            queue[tail++] = a;
+            if (a != b) {
+                queue[tail++] = b;
+                pairings++;
+            }
+            return pairings <= PlugboardSolver.PLUGBOARD_PAIRINGS;
+        }
+
+        private String plugboard() {
+            StringBuilder plugboard = new StringBuilder();
+            for (int i = 0; i < SIZE; i++) {
+                if (partner[i] > i) {
+                    if (plugboard.length() > 0) {
+                        plugboard.append(':');
+                    }
+                    plugboard.append(Machine.ALPHABET.charAt(i)).append(Machine.ALPHABET.charAt(partner[i]));
+                }
+            }
+            return plugboard.toString();
+        }
+
+    }
+
+}
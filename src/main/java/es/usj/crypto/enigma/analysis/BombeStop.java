@@ -0,0 +1,37 @@
+package es.usj.crypto.enigma.analysis;
+
+/**
+ * Rotor setting where the plugboard hypotheses deduced from a menu don't lead to any contradiction
+ */
+public class BombeStop {
+
+    // Rotor order and initial rotor positions
+    private final KeyCandidate key;
+    // Plugboard pairings deduced from the menu, separated by :
+    private final String plugboard;
+
+    BombeStop(KeyCandidate key, String plugboard) {
+        this.key = key;
+        this.plugboard = plugboard;
+    }
+
+    public KeyCandidate getKey() {
+        return key;
+    }
+
+    /**
+     * @return Plugboard pairings deduced from the menu separated by :, letters not wired are not included
+     */
+    public String getPlugboard() {
+        return plugboard;
+    }
+
+    @Override
+    public String toString() {
+        return "--left-rotor=" + key.getLeftRotor() + " --left-rotor-position=" + key.getPositions().charAt(0) +
+                " --middle-rotor=" + key.getMiddleRotor() + " --middle-rotor-position=" + key.getPositions().charAt(1) +
+                " --right-rotor=" + key.getRightRotor() + " --right-rotor-position=" + key.getPositions().charAt(2) +
+                " --plugboard=" + plugboard;
+    }
+
+}
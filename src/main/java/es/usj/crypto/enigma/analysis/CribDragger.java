@@ -0,0 +1,362 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.Machine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Crib dragging: letter positions of the cipher text where a crib (known plain text) can be placed
+ *
+ * As no letter is ciphered into itself, a crib can't be placed at an offset where some crib letter matches the
+ * cipher letter at the same position. Cribs are compared with every offset at once using shift-or: bit i of a
+ * state word is set when the crib placed to end at position i of the current letter had some letter matching
+ * the cipher text, so every cipher letter only costs a shift, an and and an or
+ *     state = (state << 1) & ~first | conflicts[cipher letter]
+ * Cribs are packed side by side in 64 bit words, the first bit of every crib is cleared after the shift so
+ * states of different cribs don't mix, and a clear last bit means the crib fits ending at the current letter
+ *
+ * Files are split in segments searched concurrently. Letters of every segment are counted first, so segments
+ * report offsets counted from the start of the file. Offsets are letter positions, blank spaces are not counted,
+ * as expected by Bombe. Offsets are streamed to a Listener in batches, sorted inside every batch but with no
+ * order among batches
+ */
+public class CribDragger {
+
+    private static final int SIZE = 26;
+    private static final int WORD_BITS = Long.SIZE;
+
+    // Bytes of every file segment searched by a task
+    static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    // Bytes read from the file at once
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Offsets of a crib sent to the Listener at once
+    private static final int BATCH_SIZE = 4096;
+
+    // ALPHABET index of every byte, BLANK for blank spaces and INVALID for any other character
+    private static final byte BLANK = -1;
+    private static final byte INVALID = -2;
+    private static final byte[] INDEXES = new byte[256];
+
+    static {
+        for (int c = 0; c < INDEXES.length; c++) {
+            int index = Machine.letterIndex(c);
+            INDEXES[c] = index >= 0 ? (byte) index : Machine.isBlank(c) ? BLANK : INVALID;
+        }
+    }
+
+    /**
+     * Receives the offsets where a crib can be placed, called from several threads at the same time
+     */
+    public interface Listener {
+        /**
+         * @param file File including the cipher text, null for a cipher text in memory
+         * @param crib Index of the crib in the list of cribs
+         * @param offsets Letter positions of the cipher text where the crib can be placed, only the first count
+         *                are valid and the array is reused after returning
+         * @param count Number of offsets
+         */
+        void candidates(Path file, int crib, long[] offsets, int count);
+    }
+
+    private final ForkJoinPool pool;
+    private final long segmentSize;
+
+    // Letters of every crib
+    private final int[] lengths;
+    private final int maxLength;
+    // Number of state words
+    private final int words;
+    // Conflict bits of every letter and state word, conflicts[letter * words + word]
+    private final long[] conflicts;
+    // First and last bit of every crib in every state word
+    private final long[] first;
+    private final long[] last;
+    // Crib ending at every bit, cribAt[word * 64 + bit]
+    private final int[] cribAt;
+
+    /**
+     * Crib dragger settings
+     * @param cribs Known plain texts including characters from the Engine ALPHABET and spaces, 1 to 64 letters
+     * @param pool Pool of threads searching the files
+     */
+    public CribDragger(List<? extends CharSequence> cribs, ForkJoinPool pool) {
+        this(cribs, pool, DEFAULT_SEGMENT_SIZE);
+    }
+
+    CribDragger(List<? extends CharSequence> cribs, ForkJoinPool pool, long segmentSize) {
+
+        assertTrue("Include 1 crib at least", !cribs.isEmpty());
+        assertTrue("Segment size should be 1 or more", segmentSize >= 1);
+        this.pool = pool;
+        this.segmentSize = segmentSize;
+
+        // Every crib is packed in the first word with enough free bits
+        lengths = new int[cribs.size()];
+        byte[][] letters = new byte[cribs.size()][];
+        int[] wordOf = new int[cribs.size()];
+        int[] bitOf = new int[cribs.size()];
+        List<Integer> used = new ArrayList<>();
+        int longest = 0;
+        for (int crib = 0; crib < cribs.size(); crib++) {
+            letters[crib] = Letters.toIndexes(cribs.get(crib));
+            int length = letters[crib].length;
+            assertTrue("Crib should include 1 to " + WORD_BITS + " letters", length >= 1 && length <= WORD_BITS);
+            int word = 0;
+            while (word < used.size() && used.get(word) + length > WORD_BITS) {
+                word++;
+            }
+            if (word == used.size()) {
+                used.add(0);
+            }
+            wordOf[crib] = word;
+            bitOf[crib] = used.get(word);
+            used.set(word, bitOf[crib] + length);
+            lengths[crib] = length;
+            longest = Math.max(longest, length);
+        }
+        maxLength = longest;
+        words = used.size();
+
+        conflicts = new long[SIZE * words];
+        first = new long[words];
+        last = new long[words];
+        cribAt = new int[words * WORD_BITS];
+        for (int crib = 0; crib < cribs.size(); crib++) {
+            int word = wordOf[crib];
+            int bit = bitOf[crib];
+            for (int i = 0; i < lengths[crib]; i++) {
+                conflicts[letters[crib][i] * words + word] |= 1L << (bit + i);
+            }
+            first[word] |= 1L << bit;
+            last[word] |= 1L << (bit + lengths[crib] - 1);
+            cribAt[word * WORD_BITS + bit + lengths[crib] - 1] = crib;
+        }
+
+    }
+
+    /**
+     * Find the offsets where every crib can be placed in a cipher text
+     * @param cipherText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @return Sorted letter positions where every crib can be placed, in the same order than the cribs
+     */
+    public long[][] drag(CharSequence cipherText) {
+
+        LongStream.Builder[] builders = new LongStream.Builder[lengths.length];
+        for (int crib = 0; crib < builders.length; crib++) {
+            builders[crib] = LongStream.builder();
+        }
+        Scan scan = new Scan(null, 0, Long.MAX_VALUE, (file, crib, offsets, count) -> {
+            for (int i = 0; i < count; i++) {
+                builders[crib].add(offsets[i]);
+            }
+        });
+        for (byte letter : Letters.toIndexes(cipherText)) {
+            scan.letter(letter);
+        }
+        scan.flush();
+
+        long[][] offsets = new long[builders.length][];
+        for (int crib = 0; crib < builders.length; crib++) {
+            offsets[crib] = builders[crib].build().toArray();
+        }
+        return offsets;
+
+    }
+
+    /**
+     * Find the offsets where every crib can be placed in every file, segments of all the files are searched
+     * concurrently and offsets are sent to the listener as they are found
+     * @param files Files including the cipher texts, characters from the Engine ALPHABET and blank spaces
+     * @param listener Listener receiving the offsets, from several threads at the same time
+     * @throws IOException when some file can't be read
+     */
+    public void drag(List<Path> files, Listener listener) throws IOException {
+
+        // Segments of every file, and letters of every segment when the file has more than one
+        long[][] letters = new long[files.size()][];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int f = 0; f < files.size(); f++) {
+            Path file = files.get(f);
+            long size;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                size = channel.size();
+            }
+            int segments = (int) Math.max(1, (size + segmentSize - 1) / segmentSize);
+            long[] counts = new long[segments + 1];
+            letters[f] = counts;
+            for (int segment = 0; segments > 1 && segment < segments; segment++) {
+                long from = segment * segmentSize;
+                long to = Math.min(from + segmentSize, size);
+                int index = segment + 1;
+                tasks.add(ForkJoinTask.adapt(() -> counts[index] = count(file, from, to)));
+            }
+        }
+        invoke(tasks);
+
+        // Every segment is searched from its first letter, offsets are counted from the letters before the segment
+        tasks.clear();
+        for (int f = 0; f < files.size(); f++) {
+            Path file = files.get(f);
+            long[] counts = letters[f];
+            int segments = counts.length - 1;
+            for (int segment = 0; segment < segments; segment++) {
+                counts[segment + 1] += counts[segment];
+                long from = segment * segmentSize;
+                long start = counts[segment];
+                long end = segments == 1 ? Long.MAX_VALUE : counts[segment + 1];
+                tasks.add(ForkJoinTask.adapt(() -> scan(file, from, new Scan(file, start, end, listener))));
+            }
+        }
+        invoke(tasks);
+
+    }
+
+    private void invoke(List<ForkJoinTask<?>> tasks) throws IOException {
+        try {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (AssertionError e) {
+            // Errors thrown by another thread are copied with no message, the original error is the cause
+            throw e.getCause() instanceof AssertionError ? (AssertionError) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Count the letters of a file segment
+     */
+    private static long count(Path file, long from, long to) {
+        long letters = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+            for (long position = from; position < to; ) {
+                buffer.clear().limit((int) Math.min(BUFFER_SIZE, to - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (INDEXES[bytes[i] & 0xFF] >= 0) {
+                        letters++;
+                    }
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return letters;
+    }
+
+    /**
+     * Search a file from a segment start until no crib can be placed before the segment end, reading the letters
+     * of the next segments when needed
+     */
+    private void scan(Path file, long from, Scan scan) {
+        // Letter position after the last letter of a crib placed at the last offset of the segment
+        long stop = scan.end == Long.MAX_VALUE ? Long.MAX_VALUE : scan.end + maxLength - 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+            long position = from;
+            while (scan.position < stop) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                for (int i = 0; i < read && scan.position < stop; i++) {
+                    int index = INDEXES[bytes[i] & 0xFF];
+                    if (index >= 0) {
+                        scan.letter(index);
+                    } else if (index == INVALID) {
+                        fail("Cipher text in " + file + " includes characters not in the ALPHABET or not considered as blank space");
+                    }
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        scan.flush();
+    }
+
+    /**
+     * Shift-or state of every crib while reading a cipher text, and offsets not sent to the listener yet
+     */
+    private final class Scan {
+
+        private final Path file;
+        // Offsets from start (included) to end (excluded) are reported
+        private final long end;
+        private final Listener listener;
+
+        // Conflict bits of every crib, all set as no crib fits before the first letter
+        private final long[] state = new long[words];
+        // Letter position of the next letter
+        private long position;
+
+        private final long[][] batches = new long[lengths.length][BATCH_SIZE];
+        private final int[] counts = new int[lengths.length];
+
+        Scan(Path file, long start, long end, Listener listener) {
+            this.file = file;
+            this.end = end;
+            this.listener = listener;
+            this.position = start;
+            Arrays.fill(state, -1L);
+        }
+
+        void letter(int index) {
+            int row = index * words;
+            for (int word = 0; word < words; word++) {
+                long bits = (state[word] << 1) & ~first[word] | conflicts[row + word];
+                state[word] = bits;
+                long fits = ~bits & last[word];
+                while (fits != 0) {
+                    int crib = cribAt[word * WORD_BITS + Long.numberOfTrailingZeros(fits)];
+                    long offset = position - lengths[crib] + 1;
+                    if (offset < end) {
+                        add(crib, offset);
+                    }
+                    fits &= fits - 1;
+                }
+            }
+            position++;
+        }
+
+        private void add(int crib, long offset) {
+            batches[crib][counts[crib]++] = offset;
+            if (counts[crib] == BATCH_SIZE) {
+                listener.candidates(file, crib, batches[crib], BATCH_SIZE);
+                counts[crib] = 0;
+            }
+        }
+
+        void flush() {
+            for (int crib = 0; crib < counts.length; crib++) {
+                if (counts[crib] > 0) {
+                    listener.candidates(file, crib, batches[crib], counts[crib]);
+                    counts[crib] = 0;
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,349 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.Machine;
+import es.usj.crypto.enigma.ScramblerDatabase;
+import es.usj.crypto.enigma.ScramblerTable;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Catalog of the cycle characteristics of every rotor order and initial rotor positions, as used by Rejewski
+ *
+ * When the message key is typed twice at the start of every message (doubled indicator), the permutations of the
+ * positions 1 and 4, 2 and 5 and 3 and 6 of many messages compose the permutations AD, BE and CF. The plugboard
+ * doesn't change the lengths of their cycles, so the cycle lengths of the three permutations are a characteristic
+ * of the rotor order and initial rotor positions that is looked up in the catalog
+ *
+ * Both permutations are involutions with no fixed points, so the cycles of their composition come in pairs of
+ * the same length and half of the lengths are a partition of 13. Every partition is encoded in 13 bits, a part
+ * of length l as l - 1 ones and a zero, and the signature of a characteristic is AD << 26 | BE << 13 | CF
+ *
+ * Entries are grouped in 65,536 buckets by the hash of their signature and sorted by signature inside every
+ * bucket, so a lookup binary searches a single bucket and only reads the matching entries. The catalog can be saved into a binary file and loaded back by memory mapping it:
+ *     header (16 bytes): magic "ENCY" | version | entries | bucket bits
+ *     signature of every entry (8 bytes) | key of every entry (4 bytes) | first entry of every bucket (4 bytes)
+ * The key of an entry is the rotor order index * 17,576 + initial rotor state. Numbers are little endian
+ */
+public class CycleCatalog {
+
+    private static final int SIZE = 26;
+
+    // First bytes of a catalog file, "ENCY" in ASCII
+    private static final int MAGIC = 0x454E4359;
+    // Version of the catalog file layout
+    private static final int VERSION = 1;
+    // Bytes before the entries in a catalog file
+    private static final int HEADER_SIZE = 16;
+    // Number of bits of the signature hash selecting the bucket
+    private static final int BUCKET_BITS = 16;
+    // Number of bits of the entry keys, 60 x 17,576 keys
+    private static final int KEY_BITS = 21;
+
+    // Right, middle and left rotor numbers of every rotor order
+    private static final List<int[]> ORDERS = KeySearch.rotorOrders();
+
+    // Signature of every entry, sorted by bucket
+    private final LongBuffer signatures;
+    // Rotor order index * STATES + initial rotor state of every entry
+    private final IntBuffer keys;
+    // Entries of bucket b are entries bucketStart[b] .. bucketStart[b + 1] - 1
+    private final IntBuffer bucketStart;
+
+    private CycleCatalog(LongBuffer signatures, IntBuffer keys, IntBuffer bucketStart) {
+        this.signatures = signatures;
+        this.keys = keys;
+        this.bucketStart = bucketStart;
+    }
+
+    /**
+     * Compute the cycle characteristic of every rotor order and initial rotor positions, rotor orders in parallel
+     * @param reflector Reflector configuration used by the Machine
+     * @param pool Pool of threads computing the characteristics
+     * @return Catalog of every rotor order and initial rotor positions
+     */
+    public static CycleCatalog generate(ReflectorConfiguration reflector, ForkJoinPool pool) {
+        return generate(reflector, pool, null);
+    }
+
+    /**
+     * Compute the cycle characteristic of every rotor order and initial rotor positions, rotor orders in parallel
+     * @param reflector Reflector configuration used by the Machine
+     * @param pool Pool of threads computing the characteristics
+     * @param database Database of the reflector permutations, null to compute them
+     * @return Catalog of every rotor order and initial rotor positions
+     */
+    public static CycleCatalog generate(ReflectorConfiguration reflector, ForkJoinPool pool,
+                                        ScramblerDatabase database) {
+
+        KeySearch.checkDatabase(database, reflector);
+
+        int entries = ORDERS.size() * ScramblerTable.STATES;
+        long[] signatureOfKey = new long[entries];
+        pool.submit(() -> IntStream.range(0, ORDERS.size())
+                .parallel()
+                .forEach(order -> characteristics(ORDERS.get(order), reflector, database,
+                        signatureOfKey, order * ScramblerTable.STATES)))
+                .join();
+
+        // Counting sort of the keys by bucket
+        int[] bucketStart = new int[(1 << BUCKET_BITS) + 1];
+        for (long signature : signatureOfKey) {
+            bucketStart[bucket(signature) + 1]++;
+        }
+        for (int b = 0; b < 1 << BUCKET_BITS; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        int[] next = Arrays.copyOf(bucketStart, 1 << BUCKET_BITS);
+        long[] packed = new long[entries];
+        for (int key = 0; key < entries; key++) {
+            packed[next[bucket(signatureOfKey[key])]++] = signatureOfKey[key] << KEY_BITS | key;
+        }
+
+        // Entries of every bucket sorted by signature
+        long[] signatures = new long[entries];
+        int[] keys = new int[entries];
+        for (int b = 0; b < 1 << BUCKET_BITS; b++) {
+            Arrays.sort(packed, bucketStart[b], bucketStart[b + 1]);
+        }
+        for (int entry = 0; entry < entries; entry++) {
+            signatures[entry] = packed[entry] >>> KEY_BITS;
+            keys[entry] = (int) (packed[entry] & ((1 << KEY_BITS) - 1));
+        }
+
+        return new CycleCatalog(LongBuffer.wrap(signatures), IntBuffer.wrap(keys), IntBuffer.wrap(bucketStart));
+
+    }
+
+    /**
+     * Signature of every initial rotor state of a rotor order
+     */
+    private static void characteristics(int[] order, ReflectorConfiguration reflector, ScramblerDatabase database,
+                                        long[] signatures, int offset) {
+
+        ScramblerTable table = KeySearch.table(order, reflector, database);
+        int[] states = new int[6];
+        int[][] composed = new int[3][SIZE];
+        for (int start = 0; start < ScramblerTable.STATES; start++) {
+            int state = start;
+            for (int position = 0; position < 6; position++) {
+                state = table.next(state);
+                states[position] = state;
+            }
+            for (int i = 0; i < 3; i++) {
+                for (int x = 0; x < SIZE; x++) {
+                    composed[i][x] = table.substitute(states[i + 3], table.substitute(states[i], x));
+                }
+            }
+            signatures[offset + start] = signature(composed[0], composed[1], composed[2]);
+        }
+
+    }
+
+    /**
+     * Load a catalog saved with save(), the file is mapped in memory and read on demand
+     * The mapping is read only and stays valid after the file is closed
+     * @param file Binary catalog file
+     * @return Catalog reading the entries from the file
+     * @throws IOException when the file can't be read
+     */
+    public static CycleCatalog load(Path file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            assertTrue("Cycle catalog file " + file + " is too short", channel.size() >= HEADER_SIZE);
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals("File " + file + " is not a cycle catalog", MAGIC, mapped.getInt(0));
+            assertEquals("Cycle catalog file version is not supported", VERSION, mapped.getInt(4));
+            assertEquals("Cycle catalog file " + file + " has other number of buckets", BUCKET_BITS, mapped.getInt(12));
+            int entries = mapped.getInt(8);
+            int buckets = (1 << BUCKET_BITS) + 1;
+            assertEquals("Cycle catalog file " + file + " size doesn't match the header",
+                    HEADER_SIZE + 12L * entries + 4L * buckets, channel.size());
+
+            int keysStart = HEADER_SIZE + 8 * entries;
+            int bucketsStart = keysStart + 4 * entries;
+            return new CycleCatalog(
+                    slice(mapped, HEADER_SIZE, keysStart).asLongBuffer(),
+                    slice(mapped, keysStart, bucketsStart).asIntBuffer(),
+                    slice(mapped, bucketsStart, bucketsStart + 4 * buckets).asIntBuffer());
+
+        }
+
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+        return buffer.duplicate().position(from).limit(to).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Save the catalog into a binary file to be loaded with load()
+     * The file is written under a temporary name and then moved, so readers never map a partial catalog
+     * @param file Binary catalog file to be created or replaced
+     * @throws IOException when the file can't be written
+     */
+    public void save(Path file) throws IOException {
+
+        int entries = signatures.capacity();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 12 * entries + 4 * bucketStart.capacity())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(entries).putInt(BUCKET_BITS);
+        buffer.asLongBuffer().put(signatures.duplicate().clear());
+        buffer.position(buffer.position() + 8 * entries);
+        buffer.asIntBuffer().put(keys.duplicate().clear());
+        buffer.position(buffer.position() + 4 * entries);
+        buffer.asIntBuffer().put(bucketStart.duplicate().clear());
+        buffer.clear();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+    }
+
+    /**
+     * Rotor orders and initial rotor positions with some cycle characteristic
+     * Rotors of this machine shift the input by their offset but don't shift the output back, so the permutations
+     * at every right rotor position are conjugates of each other and the characteristic doesn't depend on the right
+     * rotor position unless the middle or left rotor steps within the six positions: most signatures match every
+     * right rotor position
+     * @param signature Signature of the cycle characteristic
+     * @return Candidates with score 0, in no particular order
+     */
+    public List<KeyCandidate> lookup(long signature) {
+
+        // First entry of the bucket with the signature
+        int b = bucket(signature);
+        int from = bucketStart.get(b);
+        int to = bucketStart.get(b + 1);
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (signatures.get(middle) < signature) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+
+        List<KeyCandidate> candidates = new ArrayList<>();
+        for (int entry = from; entry < bucketStart.get(b + 1) && signatures.get(entry) == signature; entry++) {
+            int key = keys.get(entry);
+            int[] order = ORDERS.get(key / ScramblerTable.STATES);
+            String positions = ScramblerTable.positions(
+                    RotorConfiguration.getRotorConfiguration(order[0]),
+                    RotorConfiguration.getRotorConfiguration(order[1]),
+                    RotorConfiguration.getRotorConfiguration(order[2]),
+                    key % ScramblerTable.STATES);
+            candidates.add(new KeyCandidate(order[0], order[1], order[2], positions, 0));
+        }
+        return candidates;
+
+    }
+
+    /**
+     * Rotor orders and initial rotor positions producing the observed permutations of a doubled indicator
+     * @param ad Permutation AD, the letter at index i is the image of ALPHABET letter i
+     * @param be Permutation BE
+     * @param cf Permutation CF
+     * @return Candidates with score 0, in no particular order
+     */
+    public List<KeyCandidate> lookup(CharSequence ad, CharSequence be, CharSequence cf) {
+        return lookup(signature(permutation(ad), permutation(be), permutation(cf)));
+    }
+
+    /**
+     * @return Number of entries, one for every rotor order and initial rotor positions
+     */
+    public int size() {
+        return signatures.capacity();
+    }
+
+    /**
+     * Signature of the cycle characteristic of three composed permutations
+     * @param ad ALPHABET index of the image of every letter by AD
+     * @param be ALPHABET index of the image of every letter by BE
+     * @param cf ALPHABET index of the image of every letter by CF
+     * @return Signature of the cycle lengths
+     */
+    static long signature(int[] ad, int[] be, int[] cf) {
+        return (long) partition(ad) << 26 | (long) partition(be) << 13 | partition(cf);
+    }
+
+    /**
+     * Encode the cycle lengths of a permutation, cycles come in pairs of the same length so only one of every
+     * pair is encoded: lengths from the longest one, every length l as l - 1 ones and a zero (13 bits)
+     */
+    private static int partition(int[] permutation) {
+
+        int[] lengths = new int[SIZE];
+        int cycles = 0;
+        int visited = 0;
+        for (int x = 0; x < SIZE; x++) {
+            int length = 0;
+            for (int y = x; (visited & (1 << y)) == 0; y = permutation[y]) {
+                visited |= 1 << y;
+                length++;
+            }
+            if (length > 0) {
+                lengths[cycles++] = length;
+            }
+        }
+        Arrays.sort(lengths, 0, cycles);
+
+        int code = 0;
+        for (int i = cycles - 1; i >= 0; i -= 2) {
+            assertTrue("Cycles of the composed permutation should come in pairs of the same length",
+                    i > 0 && lengths[i] == lengths[i - 1]);
+            code = (code << lengths[i]) | ((1 << (lengths[i] - 1)) - 1) << 1;
+        }
+        return code;
+
+    }
+
+    private static int[] permutation(CharSequence letters) {
+        assertEquals("Permutation should include the 26 letters of the ALPHABET", SIZE, letters.length());
+        int[] permutation = new int[SIZE];
+        int used = 0;
+        for (int x = 0; x < SIZE; x++) {
+            int y = Machine.ALPHABET.indexOf(Character.toUpperCase(letters.charAt(x)));
+            assertTrue("Character " + letters.charAt(x) + " is expected to be 1 time in the permutation",
+                    y >= 0 && (used & (1 << y)) == 0);
+            used |= 1 << y;
+            permutation[x] = y;
+        }
+        return permutation;
+    }
+
+    private static int bucket(long signature) {
+        return (int) ((signature * 0x9E3779B97F4A7C15L) >>> (64 - BUCKET_BITS));
+    }
+
+}
@@ -0,0 +1,75 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.Machine;
+import es.usj.crypto.enigma.Plugboard;
+import es.usj.crypto.enigma.Reflector;
+import es.usj.crypto.enigma.Rotor;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+
+/**
+ * Rotor order and initial rotor positions found by a key search, with the score of the deciphered text
+ */
+public class KeyCandidate {
+
+    // Rotor numbers (1-5)
+    private final int rightRotor;
+    private final int middleRotor;
+    private final int leftRotor;
+    // Position of left, middle and right rotors, for instance "ESF"
+    private final String positions;
+    // Score of the deciphered text, higher is better
+    private final double score;
+
+    public KeyCandidate(int rightRotor, int middleRotor, int leftRotor, String positions, double score) {
+        this.rightRotor = rightRotor;
+        this.middleRotor = middleRotor;
+        this.leftRotor = leftRotor;
+        this.positions = positions;
+        this.score = score;
+    }
+
+    public int getRightRotor() {
+        return rightRotor;
+    }
+
+    public int getMiddleRotor() {
+        return middleRotor;
+    }
+
+    public int getLeftRotor() {
+        return leftRotor;
+    }
+
+    public String getPositions() {
+        return positions;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Build a Machine with this rotor order and initial rotor positions
+     * @param plugboard Plugboard to be used
+     * @param reflector Reflector configuration to be used
+     * @return Machine ready to decipher the text
+     */
+    public Machine toMachine(Plugboard plugboard, ReflectorConfiguration reflector) {
+        return new Machine(
+                plugboard,
+                new Rotor(RotorConfiguration.getRotorConfiguration(rightRotor), positions.charAt(2)),
+                new Rotor(RotorConfiguration.getRotorConfiguration(middleRotor), positions.charAt(1)),
+                new Rotor(RotorConfiguration.getRotorConfiguration(leftRotor), positions.charAt(0)),
+                new Reflector(reflector));
+    }
+
+    @Override
+    public String toString() {
+        return "--left-rotor=" + leftRotor + " --left-rotor-position=" + positions.charAt(0) +
+                " --middle-rotor=" + middleRotor + " --middle-rotor-position=" + positions.charAt(1) +
+                " --right-rotor=" + rightRotor + " --right-rotor-position=" + positions.charAt(2) +
+                " (score " + score + ")";
+    }
+
+}
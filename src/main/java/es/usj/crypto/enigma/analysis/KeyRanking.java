@@ -0,0 +1,60 @@
+package es.usj.crypto.enigma.analysis;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Best K candidates found by a search
+ *
+ * Every search task fills its own ranking and rankings are merged when tasks are joined,
+ * so no locking is required while searching
+ */
+class KeyRanking {
+
+    private static final Comparator<KeyCandidate> BY_SCORE = Comparator.comparingDouble(KeyCandidate::getScore);
+
+    private final int size;
+    // Min-heap, the worst candidate of the ranking is the head
+    private final PriorityQueue<KeyCandidate> candidates;
+
+    KeyRanking(int size) {
+        this.size = size;
+        this.candidates = new PriorityQueue<>(size + 1, BY_SCORE);
+    }
+
+    /**
+     * Check if a score is good enough to enter the ranking, to avoid building candidates that would be discarded
+     * @param score Score of the candidate
+     * @return True when the candidate would be added to the ranking
+     */
+    boolean accepts(double score) {
+        return candidates.size() < size || score > candidates.peek().getScore();
+    }
+
+    void add(KeyCandidate candidate) {
+        if (accepts(candidate.getScore())) {
+            candidates.add(candidate);
+            if (candidates.size() > size) {
+                candidates.poll();
+            }
+        }
+    }
+
+    void merge(KeyRanking other) {
+        for (KeyCandidate candidate : other.candidates) {
+            add(candidate);
+        }
+    }
+
+    /**
+     * @return Candidates sorted from the best score to the worst
+     */
+    List<KeyCandidate> toList() {
+        List<KeyCandidate> list = new ArrayList<>(candidates);
+        list.sort(BY_SCORE.reversed());
+        return list;
+    }
+
+}
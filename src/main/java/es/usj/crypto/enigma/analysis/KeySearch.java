@@ -0,0 +1,178 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.ScramblerDatabase;
+import es.usj.crypto.enigma.ScramblerTable;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ciphertext-only search of rotor order and initial rotor positions
+ *
+ * Every rotor order (5 x 4 x 3 = 60) and initial rotor positions (26 x 26 x 26 = 17,576) is tried with an empty
+ * Plugboard, scoring the deciphered text by its index of coincidence. As plugboard pairings don't change the
+ * index of coincidence of the letters they don't touch, the right rotor setting usually scores among the best ones
+ *
+ * For every rotor order the ScramblerTable is built once, so every candidate key only costs a state step and an
+ * array load per letter. Blocks of 64 consecutive initial rotor states are deciphered at once by a LaneEvaluator.
+ * Blocks are split in tasks, each one with its own ranking and evaluator, and rankings are merged when tasks
+ * are joined
+ */
+public class KeySearch {
+
+    private final ReflectorConfiguration reflector;
+    private final ForkJoinPool pool;
+    // Permutations of every rotor order, null when they are computed
+    private ScramblerDatabase database;
+
+    /**
+     * Key search settings
+     * @param reflector Reflector configuration used by the Machine
+     * @param pool Pool of threads running the search
+     */
+    public KeySearch(ReflectorConfiguration reflector, ForkJoinPool pool) {
+        this.reflector = reflector;
+        this.pool = pool;
+    }
+
+    /**
+     * Read the rotor and reflector permutations from a database instead of computing them for every rotor order
+     * @param database Database opened for the reflector of the search, null to compute the permutations
+     */
+    public void setDatabase(ScramblerDatabase database) {
+        KeySearch.checkDatabase(database, reflector);
+        this.database = database;
+    }
+
+    /**
+     * Search the rotor settings producing the deciphered texts with the highest index of coincidence
+     * @param cipherText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @param results Number of candidates to be returned
+     * @return Best candidates sorted from the highest index of coincidence to the lowest
+     */
+    public List<KeyCandidate> search(CharSequence cipherText, int results) {
+
+        byte[] letters = Letters.toIndexes(cipherText);
+        assertTrue("Cipher text should include 2 letters at least", letters.length >= 2);
+        assertTrue("Number of results should be 1 or more", results >= 1);
+
+        KeyRanking ranking = new KeyRanking(results);
+        for (int[] order : rotorOrders()) {
+            ranking.merge(search(letters, order, 0, ScramblerTable.STATES, results));
+        }
+        return ranking.toList();
+
+    }
+
+    /**
+     * Search a range of initial rotor states of a rotor order
+     * @param letters ALPHABET index of every ciphered letter
+     * @param order Right, middle and left rotor numbers (1-5)
+     * @param fromState First initial rotor state, as defined in ScramblerTable
+     * @param toState Initial rotor state after the last one
+     * @param results Number of candidates to be returned
+     * @return Best candidates of the range
+     */
+    KeyRanking search(byte[] letters, int[] order, int fromState, int toState, int results) {
+
+        ScramblerTable table = table(order, reflector, database);
+        LaneEvaluator.Table lanes = new LaneEvaluator.Table(table);
+        int blocks = (toState - fromState + LaneEvaluator.MAX_LANES - 1) / LaneEvaluator.MAX_LANES;
+        return pool.submit(() -> IntStream.range(0, blocks)
+                .parallel()
+                .collect(() -> new Task(results, lanes),
+                        (task, block) -> {
+                            int first = fromState + block * LaneEvaluator.MAX_LANES;
+                            task.search(table, order, letters, first, Math.min(LaneEvaluator.MAX_LANES, toState - first));
+                        },
+                        Task::merge))
+                .join().ranking;
+
+    }
+
+    /**
+     * Table of a rotor order, read from the database when there is one
+     * @param order Right, middle and left rotor numbers (1-5)
+     * @param reflector Reflector configuration used by the Machine
+     * @param database Database of the reflector, null to compute the permutations
+     * @return Substitution table for every rotor state
+     */
+    static ScramblerTable table(int[] order, ReflectorConfiguration reflector, ScramblerDatabase database) {
+        return database != null ? database.table(order[0], order[1], order[2]) : ScramblerTable.of(
+                RotorConfiguration.getRotorConfiguration(order[0]),
+                RotorConfiguration.getRotorConfiguration(order[1]),
+                RotorConfiguration.getRotorConfiguration(order[2]),
+                reflector);
+    }
+
+    /**
+     * @param database Database to be used by a tool, can be null
+     * @param reflector Reflector configuration used by the tool
+     */
+    static void checkDatabase(ScramblerDatabase database, ReflectorConfiguration reflector) {
+        if (database != null) {
+            assertSame("Scrambler database was opened for another reflector", reflector, database.getReflector());
+        }
+    }
+
+    /**
+     * All the rotor orders with no repetition
+     * @return Right, middle and left rotor numbers (1-5) for every rotor order
+     */
+    static List<int[]> rotorOrders() {
+        int rotors = RotorConfiguration.values().length;
+        List<int[]> orders = new ArrayList<>();
+        for (int right = 1; right <= rotors; right++) {
+            for (int middle = 1; middle <= rotors; middle++) {
+                for (int left = 1; left <= rotors; left++) {
+                    if (right != middle && middle != left && left != right) {
+                        orders.add(new int[] {right, middle, left});
+                    }
+                }
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Search state reused for every candidate tried by a thread
+     */
+    private static final class Task {
+
+        private final KeyRanking ranking;
+        private final LaneEvaluator evaluator;
+        // Initial rotor state of every lane
+        private final int[] states = new int[LaneEvaluator.MAX_LANES];
+
+        Task(int results, LaneEvaluator.Table table) {
+            this.ranking = new KeyRanking(results);
+            this.evaluator = new LaneEvaluator(table);
+        }
+
+        void search(ScramblerTable table, int[] order, byte[] letters, int first, int lanes) {
+            for (int lane = 0; lane < lanes; lane++) {
+                states[lane] = first + lane;
+            }
+            evaluator.evaluate(letters, states, lanes);
+            for (int lane = 0; lane < lanes; lane++) {
+                double score = evaluator.indexOfCoincidence(lane);
+                if (ranking.accepts(score)) {
+                    ranking.add(new KeyCandidate(order[0], order[1], order[2], table.positions(states[lane]), score));
+                }
+            }
+        }
+
+        void merge(Task other) {
+            ranking.merge(other.ranking);
+        }
+
+    }
+
+}
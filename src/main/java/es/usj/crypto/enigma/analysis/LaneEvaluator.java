@@ -0,0 +1,144 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.ScramblerTable;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Deciphers the same text with many initial rotor states at once, counting the letters obtained in every lane
+ *
+ * Every lane is an initial rotor state. Lanes are processed in groups of 8 kept in local variables, and the text
+ * is processed one letter at a time across the 8 lanes of a group, so the state steps of different lanes are
+ * independent and the processor overlaps their memory loads, instead of waiting for every load as in the chain
+ * of states of a single key. Permutations are stored by letter (26 columns of 17,576 bytes), so the lookups of
+ * a step are confined to the column of the current letter
+ *
+ * The JDK Vector API would need incubator modules, and gathers from a 457 KB table don't vectorize well,
+ * so lanes are plain scalar variables
+ *
+ * An evaluator keeps its own counts, so every thread should use its own evaluator sharing the same Table
+ */
+final class LaneEvaluator {
+
+    // Maximum number of lanes evaluated at once
+    static final int MAX_LANES = 64;
+    // Lanes stepped together in local variables
+    static final int GROUP = 8;
+
+    private static final int SIZE = 26;
+
+    private final Table table;
+    // Letter counts of every lane, count of letter i in lane l is counts[l * 26 + i]
+    private final int[] counts = new int[MAX_LANES * SIZE];
+    // Letters deciphered in the last evaluation
+    private int length;
+
+    LaneEvaluator(Table table) {
+        this.table = table;
+    }
+
+    /**
+     * Decipher the text with every initial rotor state, counting the output letters of every lane
+     * @param letters ALPHABET index of every ciphered letter
+     * @param initialStates Initial rotor state of every lane, as defined in ScramblerTable
+     * @param lanes Number of lanes, the first lanes of initialStates are used
+     */
+    void evaluate(byte[] letters, int[] initialStates, int lanes) {
+
+        assertTrue("Number of lanes should be 1 to " + MAX_LANES, lanes >= 1 && lanes <= MAX_LANES);
+        this.length = letters.length;
+
+        for (int group = 0; group < lanes; group += GROUP) {
+            evaluateGroup(letters, initialStates, group, Math.min(GROUP, lanes - group));
+        }
+
+    }
+
+    /**
+     * Decipher the text with 8 lanes, unused lanes of the last group repeat the first lane of the group
+     */
+    private void evaluateGroup(byte[] letters, int[] initialStates, int group, int lanes) {
+
+        int[] counts = this.counts;
+        int[] next = table.next;
+        byte[] columns = table.columns;
+        int base = group * SIZE;
+        for (int i = base; i < base + GROUP * SIZE; i++) {
+            counts[i] = 0;
+        }
+
+        int s0 = initialStates[group];
+        int s1 = lanes > 1 ? initialStates[group + 1] : s0;
+        int s2 = lanes > 2 ? initialStates[group + 2] : s0;
+        int s3 = lanes > 3 ? initialStates[group + 3] : s0;
+        int s4 = lanes > 4 ? initialStates[group + 4] : s0;
+        int s5 = lanes > 5 ? initialStates[group + 5] : s0;
+        int s6 = lanes > 6 ? initialStates[group + 6] : s0;
+        int s7 = lanes > 7 ? initialStates[group + 7] : s0;
+
+        for (byte letter : letters) {
+            int column = letter * ScramblerTable.STATES;
+            s0 = next[s0];
+            s1 = next[s1];
+            s2 = next[s2];
+            s3 = next[s3];
+            s4 = next[s4];
+            s5 = next[s5];
+            s6 = next[s6];
+            s7 = next[s7];
+            counts[base + columns[column + s0]]++;
+            counts[base + SIZE + columns[column + s1]]++;
+            counts[base + 2 * SIZE + columns[column + s2]]++;
+            counts[base + 3 * SIZE + columns[column + s3]]++;
+            counts[base + 4 * SIZE + columns[column + s4]]++;
+            counts[base + 5 * SIZE + columns[column + s5]]++;
+            counts[base + 6 * SIZE + columns[column + s6]]++;
+            counts[base + 7 * SIZE + columns[column + s7]]++;
+        }
+
+    }
+
+    /**
+     * @param lane Lane of the last evaluation
+     * @return Index of coincidence of the letters deciphered in the lane
+     */
+    double indexOfCoincidence(int lane) {
+        long coincidences = 0;
+        for (int i = lane * SIZE; i < (lane + 1) * SIZE; i++) {
+            coincidences += (long) counts[i] * (counts[i] - 1);
+        }
+        return coincidences / ((double) length * (length - 1));
+    }
+
+    /**
+     * @param lane Lane of the last evaluation
+     * @param letter ALPHABET index of a letter
+     * @return Number of times the letter was deciphered in the lane
+     */
+    int count(int lane, int letter) {
+        return counts[lane * SIZE + letter];
+    }
+
+    /**
+     * Permutations of a ScramblerTable stored by letter, shared by every evaluator of a rotor order
+     */
+    static final class Table {
+
+        // Substitution of letter i at state s is columns[i * 17,576 + s]
+        private final byte[] columns;
+        private final int[] next;
+
+        Table(ScramblerTable scrambler) {
+            columns = new byte[SIZE * ScramblerTable.STATES];
+            next = new int[ScramblerTable.STATES];
+            for (int state = 0; state < ScramblerTable.STATES; state++) {
+                next[state] = scrambler.next(state);
+                for (int letter = 0; letter < SIZE; letter++) {
+                    columns[letter * ScramblerTable.STATES + state] = (byte) scrambler.substitute(state, letter);
+                }
+            }
+        }
+
+    }
+
+}
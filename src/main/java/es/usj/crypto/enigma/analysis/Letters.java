@@ -0,0 +1,58 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.Machine;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Texts used by the cryptanalysis tools are handled as arrays of ALPHABET indexes, blank spaces are removed
+ * Letters and blank spaces are the ones accepted by Machine
+ */
+final class Letters {
+
+    private Letters() {
+    }
+
+    /**
+     * Get the ALPHABET indexes of the letters in a text
+     * @param text String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @return ALPHABET index of every letter in the text
+     */
+    static byte[] toIndexes(CharSequence text) {
+        byte[] letters = new byte[text.length()];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int index = Machine.letterIndex(c);
+            if (index >= 0) {
+                letters[length++] = (byte) index;
+            } else {
+                assertTrue("Text includes characters not in the ALPHABET or not considered as blank space",
+                        Machine.isBlank(c));
+            }
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(letters, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Get the ALPHABET indexes of the letters in a text, ignoring any other character
+     * @param text Any text, for instance a corpus including punctuation
+     * @return ALPHABET index of every letter in the text
+     */
+    static byte[] lettersOf(CharSequence text) {
+        byte[] letters = new byte[text.length()];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int index = Machine.letterIndex(text.charAt(i));
+            if (index >= 0) {
+                letters[length++] = (byte) index;
+            }
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(letters, 0, result, 0, length);
+        return result;
+    }
+
+}
@@ -0,0 +1,71 @@
+package es.usj.crypto.enigma.analysis;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Letter pairs graph built from the alignment of a crib (known plain text) with the cipher text
+ *
+ * Every position i of the crib links the plain letter crib[i] and the cipher letter cipher[offset + i], as both
+ * letters are exchanged by the Machine at message position offset + i. Loops in this graph make wrong plugboard
+ * hypotheses lead to contradictions
+ */
+final class Menu {
+
+    private static final int SIZE = 26;
+
+    // Message position of every link
+    final int[] positions;
+    // Links of every letter: linked letter and link index, flattened as pairs
+    final int[][] links;
+    // Letter with the highest number of links, where plugboard hypotheses are tested
+    final int testLetter;
+    // Last message position in the menu
+    final int lastPosition;
+
+    /**
+     * Menu settings
+     * @param cipher ALPHABET index of every letter in the cipher text
+     * @param crib ALPHABET index of every letter in the crib
+     * @param offset Letter position of the crib in the cipher text
+     */
+    Menu(byte[] cipher, byte[] crib, int offset) {
+
+        assertTrue("Crib should include 1 letter at least", crib.length > 0);
+        assertTrue("Crib should be placed inside the cipher text", offset >= 0 && offset + crib.length <= cipher.length);
+
+        positions = new int[crib.length];
+        int[] degree = new int[SIZE];
+        for (int i = 0; i < crib.length; i++) {
+            int plain = crib[i];
+            int cipherLetter = cipher[offset + i];
+            assertTrue("Crib can't be placed at offset " + offset + ", no letter is ciphered into itself",
+                    plain != cipherLetter);
+            positions[i] = offset + i;
+            degree[plain]++;
+            degree[cipherLetter]++;
+        }
+        lastPosition = offset + crib.length - 1;
+
+        links = new int[SIZE][];
+        int best = 0;
+        for (int letter = 0; letter < SIZE; letter++) {
+            links[letter] = new int[degree[letter] * 2];
+            if (degree[letter] > degree[best]) {
+                best = letter;
+            }
+        }
+        testLetter = best;
+
+        int[] filled = new int[SIZE];
+        for (int i = 0; i < crib.length; i++) {
+            int plain = crib[i];
+            int cipherLetter = cipher[offset + i];
+            links[plain][filled[plain]++] = cipherLetter;
+            links[plain][filled[plain]++] = i;
+            links[cipherLetter][filled[cipherLetter]++] = plain;
+            links[cipherLetter][filled[cipherLetter]++] = i;
+        }
+
+    }
+
+}
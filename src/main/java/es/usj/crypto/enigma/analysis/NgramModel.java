@@ -0,0 +1,189 @@
+package es.usj.crypto.enigma.analysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Log-probabilities of the n-grams (sequences of n letters) of a language
+ *
+ * Probabilities are stored in a flat array indexed by the base-26 code of the n-gram, for instance
+ * the code of the trigram "THE" is (19 * 26 + 7) * 26 + 4
+ *
+ * Models can be saved into a binary file and loaded back by memory mapping it, so the probabilities are kept
+ * off the heap and shared by every thread and process using the same file. The file is a 16 bytes header
+ * followed by the 26^order probabilities, every value in little endian byte order
+ *     magic "NGRM" | version | order | reserved (0) | float * 26^order
+ */
+public class NgramModel {
+
+    private static final int SIZE = 26;
+
+    // First bytes of a model file, "NGRM" in ASCII
+    private static final int MAGIC = 0x4E47524D;
+    // Version of the model file layout
+    private static final int VERSION = 1;
+    // Bytes before the probabilities in a model file
+    private static final int HEADER_SIZE = 16;
+
+    // Number of letters in every n-gram
+    private final int order;
+    // Base 10 logarithm of the probability of every n-gram
+    private final FloatBuffer logProbabilities;
+
+    /**
+     * N-gram model settings
+     * @param order Number of letters in every n-gram (1 .. 4)
+     * @param logProbabilities Base 10 logarithm of the probability of every n-gram, 26^order values
+     */
+    public NgramModel(int order, float[] logProbabilities) {
+        this(order, FloatBuffer.wrap(logProbabilities));
+    }
+
+    private NgramModel(int order, FloatBuffer logProbabilities) {
+        assertTrue("N-gram order should be 1 to 4", order >= 1 && order <= 4);
+        assertTrue("N-gram model should include " + codes(order) + " values", logProbabilities.capacity() == codes(order));
+        this.order = order;
+        this.logProbabilities = logProbabilities;
+    }
+
+    /**
+     * Load a model saved with save(), the file is mapped in memory and read on demand
+     * The mapping is read only and stays valid after the file is closed
+     * @param file Binary model file
+     * @return N-gram model reading the probabilities from the file
+     * @throws IOException when the file can't be read
+     */
+    public static NgramModel load(Path file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            assertTrue("N-gram model file " + file + " is too short", channel.size() >= HEADER_SIZE);
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals("File " + file + " is not an n-gram model", MAGIC, mapped.getInt(0));
+            assertEquals("N-gram model file version is not supported", VERSION, mapped.getInt(4));
+            int order = mapped.getInt(8);
+            assertTrue("N-gram order should be 1 to 4", order >= 1 && order <= 4);
+            assertEquals("N-gram model file " + file + " size doesn't match the order",
+                    HEADER_SIZE + 4L * codes(order), channel.size());
+
+            return new NgramModel(order, mapped.position(HEADER_SIZE).slice()
+                    .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+
+        }
+
+    }
+
+    /**
+     * Save the model into a binary file to be loaded with load()
+     * The file is written under a temporary name and then moved, so readers never map a partial model
+     * @param file Binary model file to be created or replaced
+     * @throws IOException when the file can't be written
+     */
+    public void save(Path file) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4 * logProbabilities.capacity())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(order).putInt(0);
+        buffer.asFloatBuffer().put(logProbabilities.duplicate().clear());
+        buffer.clear();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+    }
+
+    /**
+     * Build a model counting the n-grams of a corpus, characters not in the ALPHABET are ignored
+     * Missing n-grams get the probability of a hundredth of an occurrence
+     * @param corpus Text in the language to be modeled
+     * @param order Number of letters in every n-gram (1 .. 4)
+     * @return N-gram model for the corpus
+     */
+    public static NgramModel train(CharSequence corpus, int order) {
+
+        assertTrue("N-gram order should be 1 to 4", order >= 1 && order <= 4);
+        byte[] letters = Letters.lettersOf(corpus);
+        assertTrue("Corpus should include " + order + " letters at least", letters.length >= order);
+
+        int codes = codes(order);
+        long[] counts = new long[codes];
+        int code = 0;
+        for (int i = 0; i < letters.length; i++) {
+            code = (code * SIZE + letters[i]) % codes;
+            if (i >= order - 1) {
+                counts[code]++;
+            }
+        }
+
+        double total = letters.length - order + 1;
+        float[] logProbabilities = new float[codes];
+        for (int i = 0; i < codes; i++) {
+            logProbabilities[i] = (float) Math.log10((counts[i] == 0 ? 0.01 : counts[i]) / total);
+        }
+        return new NgramModel(order, logProbabilities);
+
+    }
+
+    /**
+     * Score of a text as the sum of the log-probabilities of its n-grams, higher is better
+     * @param letters ALPHABET index of every letter in the text
+     * @param length Number of letters to be scored
+     * @return Log-probability of the text
+     */
+    public double score(byte[] letters, int length) {
+        FloatBuffer logProbabilities = this.logProbabilities;
+        int codes = logProbabilities.capacity();
+        double score = 0;
+        int code = 0;
+        for (int i = 0; i < length; i++) {
+            code = (code * SIZE + letters[i]) % codes;
+            if (i >= order - 1) {
+                score += logProbabilities.get(code);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Log-probability of a single n-gram
+     * @param code Base-26 code of the n-gram
+     * @return Base 10 logarithm of the probability of the n-gram
+     */
+    public float logProbability(int code) {
+        return logProbabilities.get(code);
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    static int codes(int order) {
+        int codes = 1;
+        for (int i = 0; i < order; i++) {
+            codes *= SIZE;
+        }
+        return codes;
+    }
+
+}
@@ -0,0 +1,323 @@
+package es.usj.crypto.enigma.analysis;
+
+import java.util.Arrays;
+
+/**
+ * N-gram score and letter counts of a deciphered text, updated incrementally when the plugboard changes
+ *
+ * The letter at position i is deciphered as plugboard >> position substitution >> plugboard, so changing the
+ * pairing of some letters only changes the positions where one of those letters is the cipher letter (input plug)
+ * or the output of the position substitution (output plug). Positions are indexed by both letters: cipher letters
+ * never change, and the substitution output of a position is moved from one index to another when its input plug
+ * changes. After a plugboard change only those positions and the n-grams including them are computed again, so
+ * the cost depends on the occurrences of the changed letters instead of the length of the text
+ *
+ * Touching a position is several times slower than a sequential pass deciphering it, and frequent letters are in
+ * a large part of the positions, so moves touching more than 1/8 of the text are evaluated with a single pass
+ */
+final class PlugboardScorer {
+
+    private static final int SIZE = 26;
+
+    // Cost of evaluating a touched position relative to deciphering a position in a pass over the whole text
+    private static final int INCREMENTAL_COST = 8;
+
+    private final NgramModel model;
+    private final int order;
+
+    // ALPHABET index of every cipher letter
+    private final byte[] letters;
+    // Substitution of letter x at position i is substitutions[i * 26 + x]
+    private final byte[] substitutions;
+
+    // Current plugboard, not wired letters are mapped to themselves
+    private final int[] plugboard = new int[SIZE];
+    // Output of the position substitution before the output plug
+    private final byte[] middle;
+    // Deciphered letters
+    private final byte[] plainText;
+    // Log-probability of the n-gram ending at every position, 0 for the first order - 1 positions
+    private final float[] grams;
+    // Number of occurrences of every letter in the deciphered text
+    private final int[] counts = new int[SIZE];
+    // Sum of the n-gram log-probabilities
+    private double score;
+
+    // Positions of cipher letter x are byCipher[cipherStart[x] .. cipherStart[x + 1] - 1]
+    private final int[] cipherStart = new int[SIZE + 1];
+    private final int[] byCipher;
+    // Positions with middle letter x are byMiddle[x][0 .. middleSize[x] - 1], slot of position i is middleSlot[i]
+    private final int[][] byMiddle = new int[SIZE][];
+    private final int[] middleSize = new int[SIZE];
+    private final int[] middleSlot;
+
+    // Positions to be deciphered again
+    private final int[] touched;
+    // N-grams to be computed again, marked with the update number to avoid duplicates
+    private final int[] dirty;
+    private final int[] dirtyMark;
+    private int update;
+    // Deciphered letters of the positions changed by the evaluated plugboard, marked with the update number
+    private final byte[] changed;
+    private final int[] changedMark;
+
+    /**
+     * Scorer settings, the initial plugboard is empty
+     * @param model N-gram model of the language of the plain text
+     * @param letters ALPHABET index of every letter in the cipher text
+     * @param substitutions Rotors and reflector substitution for every letter position
+     */
+    PlugboardScorer(NgramModel model, byte[] letters, byte[] substitutions) {
+
+        this.model = model;
+        this.order = model.getOrder();
+        this.letters = letters;
+        this.substitutions = substitutions;
+
+        int length = letters.length;
+        middle = new byte[length];
+        plainText = new byte[length];
+        grams = new float[length];
+        byCipher = new int[length];
+        middleSlot = new int[length];
+        touched = new int[length];
+        dirty = new int[length];
+        dirtyMark = new int[length];
+        changed = new byte[length];
+        changedMark = new int[length];
+
+        for (int i = 0; i < SIZE; i++) {
+            plugboard[i] = i;
+        }
+        for (byte letter : letters) {
+            cipherStart[letter + 1]++;
+        }
+        for (int x = 0; x < SIZE; x++) {
+            cipherStart[x + 1] += cipherStart[x];
+            byMiddle[x] = new int[8];
+        }
+        int[] next = Arrays.copyOf(cipherStart, SIZE);
+        for (int i = 0; i < length; i++) {
+            byCipher[next[letters[i]]++] = i;
+            middle[i] = substitutions[i * SIZE + letters[i]];
+            plainText[i] = middle[i];
+            counts[plainText[i]]++;
+            addMiddle(i, middle[i]);
+        }
+
+        int code = 0;
+        int codes = NgramModel.codes(order);
+        for (int i = 0; i < length; i++) {
+            code = (code * SIZE + plainText[i]) % codes;
+            if (i >= order - 1) {
+                grams[i] = model.logProbability(code);
+                score += grams[i];
+            }
+        }
+
+    }
+
+    /**
+     * Score of the text deciphered with another plugboard, without replacing the current plugboard
+     * Only the positions where a changed letter is plugged and the n-grams including them are computed
+     * @param plugboard Plug of every letter, not wired letters are mapped to themselves
+     * @return N-gram score of the text deciphered with the plugboard
+     */
+    double evaluate(int[] plugboard) {
+
+        int estimate = 0;
+        for (int x = 0; x < SIZE; x++) {
+            if (plugboard[x] != this.plugboard[x]) {
+                estimate += cipherStart[x + 1] - cipherStart[x] + middleSize[x];
+            }
+        }
+        if (estimate * INCREMENTAL_COST > letters.length) {
+            return score(plugboard);
+        }
+
+        int touchedCount = touch(plugboard);
+        int dirtyCount = 0;
+        int length = letters.length;
+        for (int j = 0; j < touchedCount; j++) {
+            int i = touched[j];
+            byte p = (byte) plugboard[substitutions[i * SIZE + plugboard[letters[i]]]];
+            if (p != plainText[i]) {
+                changed[i] = p;
+                changedMark[i] = update;
+                dirtyCount = dirty(i, length, dirtyCount);
+            }
+        }
+
+        double delta = 0;
+        for (int j = 0; j < dirtyCount; j++) {
+            int end = dirty[j];
+            int code = 0;
+            for (int k = end - order + 1; k <= end; k++) {
+                code = code * SIZE + (changedMark[k] == update ? changed[k] : plainText[k]);
+            }
+            delta += model.logProbability(code) - grams[end];
+        }
+        return score + delta;
+
+    }
+
+    /**
+     * Score of the text deciphered with another plugboard, deciphering every position
+     */
+    private double score(int[] plugboard) {
+        int codes = NgramModel.codes(order);
+        double score = 0;
+        int code = 0;
+        for (int i = 0; i < letters.length; i++) {
+            code = (code * SIZE + plugboard[substitutions[i * SIZE + plugboard[letters[i]]]]) % codes;
+            if (i >= order - 1) {
+                score += model.logProbability(code);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Replace the plugboard, only the positions where a changed letter is plugged are deciphered again
+     * @param plugboard Plug of every letter, not wired letters are mapped to themselves
+     * @return N-gram score of the deciphered text
+     */
+    double update(int[] plugboard) {
+
+        int touchedCount = touch(plugboard);
+        if (touchedCount == 0) {
+            return score;
+        }
+        System.arraycopy(plugboard, 0, this.plugboard, 0, SIZE);
+
+        int dirtyCount = 0;
+        int length = letters.length;
+        for (int j = 0; j < touchedCount; j++) {
+            int i = touched[j];
+            byte m = substitutions[i * SIZE + plugboard[letters[i]]];
+            if (m != middle[i]) {
+                removeMiddle(i, middle[i]);
+                addMiddle(i, m);
+                middle[i] = m;
+            }
+            byte p = (byte) plugboard[m];
+            if (p != plainText[i]) {
+                counts[plainText[i]]--;
+                counts[p]++;
+                plainText[i] = p;
+                dirtyCount = dirty(i, length, dirtyCount);
+            }
+        }
+
+        for (int j = 0; j < dirtyCount; j++) {
+            int end = dirty[j];
+            int code = 0;
+            for (int k = end - order + 1; k <= end; k++) {
+                code = code * SIZE + plainText[k];
+            }
+            float gram = model.logProbability(code);
+            score += gram - grams[end];
+            grams[end] = gram;
+        }
+
+        return score;
+
+    }
+
+    /**
+     * Collect the positions where a letter with a different plug is the cipher letter or the substitution output,
+     * using the indexes of the current plugboard
+     * @return Number of positions in touched
+     */
+    private int touch(int[] plugboard) {
+        update++;
+        int mask = 0;
+        for (int x = 0; x < SIZE; x++) {
+            if (plugboard[x] != this.plugboard[x]) {
+                mask |= 1 << x;
+            }
+        }
+        // Every position is in one index of each kind, so a position is repeated only when both letters changed
+        int touchedCount = 0;
+        for (int x = 0; x < SIZE; x++) {
+            if ((mask & (1 << x)) != 0) {
+                for (int j = cipherStart[x]; j < cipherStart[x + 1]; j++) {
+                    touched[touchedCount++] = byCipher[j];
+                }
+                int[] positions = byMiddle[x];
+                for (int j = 0; j < middleSize[x]; j++) {
+                    int i = positions[j];
+                    if ((mask & (1 << letters[i])) == 0) {
+                        touched[touchedCount++] = i;
+                    }
+                }
+            }
+        }
+        return touchedCount;
+    }
+
+    /**
+     * Mark every n-gram including a changed position
+     * @return Number of n-grams in dirty
+     */
+    private int dirty(int position, int length, int dirtyCount) {
+        for (int end = Math.max(position, order - 1); end < Math.min(position + order, length); end++) {
+            dirtyCount = mark(end, dirty, dirtyMark, dirtyCount);
+        }
+        return dirtyCount;
+    }
+
+    private int mark(int position, int[] marked, int[] marks, int count) {
+        if (marks[position] != update) {
+            marks[position] = update;
+            marked[count++] = position;
+        }
+        return count;
+    }
+
+    private void addMiddle(int position, int letter) {
+        int size = middleSize[letter];
+        if (size == byMiddle[letter].length) {
+            byMiddle[letter] = Arrays.copyOf(byMiddle[letter], size * 2);
+        }
+        byMiddle[letter][size] = position;
+        middleSlot[position] = size;
+        middleSize[letter] = size + 1;
+    }
+
+    private void removeMiddle(int position, int letter) {
+        // Last position of the index takes the slot of the removed one
+        int last = byMiddle[letter][--middleSize[letter]];
+        int slot = middleSlot[position];
+        byMiddle[letter][slot] = last;
+        middleSlot[last] = slot;
+    }
+
+    /**
+     * @return Sum of the n-gram log-probabilities of the deciphered text, higher is better
+     */
+    double getScore() {
+        return score;
+    }
+
+    /**
+     * Index of coincidence of the deciphered text, computed from the letter counts
+     * @return Probability of two random letters of the text being the same letter
+     */
+    double indexOfCoincidence() {
+        long length = letters.length;
+        if (length < 2) {
+            return 0;
+        }
+        long sum = 0;
+        for (int count : counts) {
+            sum += (long) count * (count - 1);
+        }
+        return (double) sum / (length * (length - 1));
+    }
+
+    byte[] getPlainText() {
+        return plainText;
+    }
+
+}
@@ -0,0 +1,64 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.Machine;
+
+/**
+ * Plugboard pairings found by a plugboard search for a key candidate, with the score of the deciphered text
+ */
+public class PlugboardSolution {
+
+    // Rotor order and initial rotor positions used to decipher the text
+    private final KeyCandidate key;
+    // Pairings separated by :, for instance "AB:CD"
+    private final String plugboard;
+    // Score of the deciphered text, higher is better
+    private final double score;
+
+    PlugboardSolution(KeyCandidate key, int[] plugboard, double score) {
+        this(key, pairings(plugboard), score);
+    }
+
+    PlugboardSolution(KeyCandidate key, String plugboard, double score) {
+        this.key = key;
+        this.plugboard = plugboard;
+        this.score = score;
+    }
+
+    private static String pairings(int[] plugboard) {
+        StringBuilder pairings = new StringBuilder();
+        for (int i = 0; i < plugboard.length; i++) {
+            if (plugboard[i] > i) {
+                if (pairings.length() > 0) {
+                    pairings.append(':');
+                }
+                pairings.append(Machine.ALPHABET.charAt(i)).append(Machine.ALPHABET.charAt(plugboard[i]));
+            }
+        }
+        return pairings.toString();
+    }
+
+    public KeyCandidate getKey() {
+        return key;
+    }
+
+    /**
+     * @return Pairings separated by :, to be used as Plugboard input when 10 pairings have been found
+     */
+    public String getPlugboard() {
+        return plugboard;
+    }
+
+    public int getPairings() {
+        return plugboard.isEmpty() ? 0 : plugboard.split(":").length;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "--plugboard=" + plugboard + " (score " + score + ")";
+    }
+
+}
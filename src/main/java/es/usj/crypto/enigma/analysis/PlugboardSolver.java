@@ -0,0 +1,200 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.ScramblerDatabase;
+import es.usj.crypto.enigma.ScramblerTable;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Recovery of the plugboard pairings once rotor order and initial rotor positions are known
+ *
+ * The rotors and reflector substitution of every letter position is computed once, so deciphering the text with
+ * a plugboard is plugboard >> position substitution >> plugboard for every letter. Starting from an empty or a
+ * random plugboard, every pair of letters is plugged or unplugged while the n-gram score of the deciphered text
+ * improves (hill climbing). Restarts from different random plugboards run in parallel and the best one is kept
+ *
+ * Plugboards are handled as int arrays reused by every restart, so no Plugboard is built while searching, and
+ * every move is scored by PlugboardScorer deciphering again only the positions of the letters whose plug changed.
+ * Moves are evaluated without changing the scorer, which is only updated when the move is kept
+ */
+public class PlugboardSolver {
+
+    private static final int SIZE = 26;
+
+    // Maximum number of plug cables
+    public static final int PLUGBOARD_PAIRINGS = 10;
+
+    private final NgramModel model;
+    private final ReflectorConfiguration reflector;
+    private final ForkJoinPool pool;
+    // Permutations of every rotor order, null when they are computed
+    private ScramblerDatabase database;
+
+    /**
+     * Plugboard solver settings
+     * @param model N-gram model of the language of the plain text
+     * @param reflector Reflector configuration used by the Machine
+     * @param pool Pool of threads running the restarts
+     */
+    public PlugboardSolver(NgramModel model, ReflectorConfiguration reflector, ForkJoinPool pool) {
+        this.model = model;
+        this.reflector = reflector;
+        this.pool = pool;
+    }
+
+    /**
+     * Read the rotor and reflector permutations from a database instead of computing them for every rotor order
+     * @param database Database opened for the reflector of the solver, null to compute the permutations
+     */
+    public void setDatabase(ScramblerDatabase database) {
+        KeySearch.checkDatabase(database, reflector);
+        this.database = database;
+    }
+
+    /**
+     * Search the plugboard producing the deciphered text with the highest n-gram score
+     * @param cipherText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @param key Rotor order and initial rotor positions
+     * @param restarts Number of hill climbing runs, first one starts from an empty plugboard
+     * @param seed Seed of the random initial plugboards
+     * @return Best plugboard found
+     */
+    public PlugboardSolution solve(CharSequence cipherText, KeyCandidate key, int restarts, long seed) {
+
+        byte[] letters = Letters.toIndexes(cipherText);
+        assertTrue("Number of restarts should be 1 or more", restarts >= 1);
+
+        byte[] substitutions = substitutions(letters, key);
+        return pool.submit(() -> IntStream.range(0, restarts)
+                .parallel()
+                .mapToObj(restart -> new Climber(key, letters, substitutions).climb(restart, new Random(seed + restart)))
+                .max(Comparator.comparingDouble(PlugboardSolution::getScore))
+                .get())
+                .join();
+
+    }
+
+    /**
+     * Rotors and reflector substitution for every letter position
+     * @param letters ALPHABET index of every letter in the cipher text
+     * @param key Rotor order and initial rotor positions
+     * @return Substitution of letter x at position i is substitutions[i * 26 + x]
+     */
+    byte[] substitutions(byte[] letters, KeyCandidate key) {
+        ScramblerTable table = KeySearch.table(
+                new int[] {key.getRightRotor(), key.getMiddleRotor(), key.getLeftRotor()}, reflector, database);
+        String positions = key.getPositions();
+        int state = table.stateOf(positions.charAt(0), positions.charAt(1), positions.charAt(2));
+        byte[] substitutions = new byte[letters.length * SIZE];
+        for (int i = 0; i < letters.length; i++) {
+            state = table.next(state);
+            for (int x = 0; x < SIZE; x++) {
+                substitutions[i * SIZE + x] = (byte) table.substitute(state, x);
+            }
+        }
+        return substitutions;
+    }
+
+    /**
+     * Hill climbing state, buffers are reused for every plugboard evaluation
+     */
+    private final class Climber {
+
+        private final KeyCandidate key;
+        private final PlugboardScorer scorer;
+        private final int[] plugboard = new int[SIZE];
+        private final int[] backup = new int[SIZE];
+        private int pairings;
+
+        Climber(KeyCandidate key, byte[] letters, byte[] substitutions) {
+            this.key = key;
+            this.scorer = new PlugboardScorer(model, letters, substitutions);
+        }
+
+        PlugboardSolution climb(int restart, Random random) {
+
+            for (int i = 0; i < SIZE; i++) {
+                plugboard[i] = i;
+            }
+            pairings = 0;
+            if (restart > 0) {
+                for (int i = random.nextInt(PLUGBOARD_PAIRINGS + 1); i > 0; i--) {
+                    int a = random.nextInt(SIZE);
+                    int b = random.nextInt(SIZE);
+                    if (a != b && plugboard[a] == a && plugboard[b] == b) {
+                        connect(a, b);
+                    }
+                }
+            }
+
+            double best = scorer.update(plugboard);
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (int a = 0; a < SIZE; a++) {
+                    for (int b = a + 1; b < SIZE; b++) {
+                        System.arraycopy(plugboard, 0, backup, 0, SIZE);
+                        int backupPairings = pairings;
+                        if (move(a, b) && scorer.evaluate(plugboard) > best) {
+                            best = scorer.update(plugboard);
+                            improved = true;
+                            continue;
+                        }
+                        System.arraycopy(backup, 0, plugboard, 0, SIZE);
+                        pairings = backupPairings;
+                    }
+                }
+            }
+
+            return new PlugboardSolution(key, plugboard, best);
+
+        }
+
+        /**
+         * Plug a and b together: a and b are unplugged when already plugged together, otherwise their previous
+         * partners are plugged together to keep the number of cables
+         * @return False when the move requires more cables than available
+         */
+        private boolean move(int a, int b) {
+            int x = plugboard[a];
+            int y = plugboard[b];
+            if (x == b) {
+                disconnect(a);
+                return true;
+            }
+            if (x == a && y == b && pairings == PLUGBOARD_PAIRINGS) {
+                return false;
+            }
+            disconnect(a);
+            disconnect(b);
+            connect(a, b);
+            if (x != a && y != b) {
+                connect(x, y);
+            }
+            return true;
+        }
+
+        private void connect(int a, int b) {
+            plugboard[a] = b;
+            plugboard[b] = a;
+            pairings++;
+        }
+
+        private void disconnect(int a) {
+            int b = plugboard[a];
+            if (b != a) {
+                plugboard[a] = a;
+                plugboard[b] = b;
+                pairings--;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,402 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.ScramblerDatabase;
+import es.usj.crypto.enigma.ScramblerTable;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Key search split in shards that any number of processes, in one or several hosts, can run sharing a directory
+ *
+ * The search space of KeySearch (60 rotor orders x 17,576 initial rotor states) is split in deterministic shards:
+ * every rotor order is divided in the same number of ranges of initial rotor states. This Machine has no ring
+ * settings, so there are no additional notch positions to be split.
+ *
+ * The directory contains:
+ *     job.properties      Cipher text, number of results, number of shards for every rotor order and
+ *                         plugboard restarts
+ *     model.ngrams        N-gram model scoring the plugboards, only when plugboards are solved
+ *     NNNN.claim          Shard being searched by some worker, created atomically by the first worker claiming it
+ *     NNNN.result         Best candidates of a completed shard with their plugboard solutions, written to a
+ *                         temporary file and moved atomically
+ *
+ * When the search is created with an n-gram model, every shard runs PlugboardSolver on its best candidates
+ * before saving the result, so the expensive part of the attack is checkpointed too.
+ *
+ * Result files are the checkpoint: an interrupted search is resumed by running the workers again, and only
+ * shards without result are searched. The worker searching a shard touches the claim file every third of the
+ * lease time, and claims not touched during the lease time are considered abandoned by a stopped worker,
+ * so they can be claimed again
+ */
+public class ShardedSearch {
+
+    private static final String JOB_FILE = "job.properties";
+    private static final String MODEL_FILE = "model.ngrams";
+    private static final String CLAIM = ".claim";
+    private static final String RESULT = ".result";
+    private static final int VERSION = 1;
+
+    // Default time after which a claim without result is considered abandoned
+    public static final long DEFAULT_LEASE_MILLIS = 30 * 60 * 1000L;
+
+    private final Path directory;
+    private final byte[] letters;
+    private final int results;
+    private final int shardsPerOrder;
+    // Hill climbing runs of PlugboardSolver for every candidate, 0 when plugboards are not solved
+    private final int restarts;
+    private final List<int[]> orders = KeySearch.rotorOrders();
+    private long leaseMillis = DEFAULT_LEASE_MILLIS;
+    // Permutations of every rotor order used by this worker, null when they are computed
+    private ScramblerDatabase database;
+
+    private ShardedSearch(Path directory, String cipherText, int results, int shardsPerOrder, int restarts) {
+        this.directory = directory;
+        this.letters = Letters.toIndexes(cipherText);
+        this.results = results;
+        this.shardsPerOrder = shardsPerOrder;
+        this.restarts = restarts;
+    }
+
+    /**
+     * Create the search directory, or open it when the same search was already created
+     * @param directory Directory shared by the workers
+     * @param cipherText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @param results Number of candidates to be kept
+     * @param shardsPerOrder Number of ranges of initial rotor states for every rotor order
+     * @return Search ready to be run by workers
+     * @throws IOException when the directory can't be written
+     */
+    public static ShardedSearch create(Path directory, CharSequence cipherText, int results, int shardsPerOrder)
+            throws IOException {
+        return create(directory, cipherText, results, shardsPerOrder, null, 0);
+    }
+
+    /**
+     * Create the search directory solving the plugboard of the candidates, or open it when the same search was
+     * already created
+     * @param directory Directory shared by the workers
+     * @param cipherText String that contains a sentence including characters from the Engine ALPHABET and spaces
+     * @param results Number of candidates to be kept
+     * @param shardsPerOrder Number of ranges of initial rotor states for every rotor order
+     * @param model N-gram model of the language of the plain text, saved into the directory for every worker
+     * @param restarts Number of hill climbing runs of PlugboardSolver for every candidate
+     * @return Search ready to be run by workers
+     * @throws IOException when the directory can't be written
+     */
+    public static ShardedSearch create(Path directory, CharSequence cipherText, int results, int shardsPerOrder,
+                                       NgramModel model, int restarts) throws IOException {
+
+        assertTrue("Number of restarts should be 1 or more when a model is used", model == null || restarts >= 1);
+        assertTrue("Number of results should be 1 or more", results >= 1);
+        assertTrue("Shards for every rotor order should be 1 to " + ScramblerTable.STATES,
+                shardsPerOrder >= 1 && shardsPerOrder <= ScramblerTable.STATES);
+        byte[] letters = Letters.toIndexes(cipherText);
+        assertTrue("Cipher text should include 2 letters at least", letters.length >= 2);
+
+        Files.createDirectories(directory);
+        if (model != null) {
+            // Saved before the job, so workers opening the job always find the model
+            model.save(directory.resolve(MODEL_FILE));
+        }
+        Properties job = new Properties();
+        job.setProperty("version", String.valueOf(VERSION));
+        job.setProperty("cipher-text", toText(letters));
+        job.setProperty("results", String.valueOf(results));
+        job.setProperty("shards-per-order", String.valueOf(shardsPerOrder));
+        job.setProperty("restarts", String.valueOf(model == null ? 0 : restarts));
+        Path temporary = Files.createTempFile(directory, JOB_FILE, ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            job.store(writer, "Sharded key search");
+        }
+        try {
+            // Linking fails when the job already exists, so the first process creating the job wins
+            Files.createLink(directory.resolve(JOB_FILE), temporary);
+        } catch (FileAlreadyExistsException e) {
+            // Job created by another process
+        } finally {
+            Files.delete(temporary);
+        }
+
+        ShardedSearch search = open(directory);
+        assertEquals("Directory " + directory + " includes a search for a different cipher text",
+                toText(letters), toText(search.letters));
+        assertTrue("Directory " + directory + " includes a search with different settings",
+                search.results == results && search.shardsPerOrder == shardsPerOrder &&
+                search.restarts == (model == null ? 0 : restarts));
+        return search;
+
+    }
+
+    /**
+     * Open an existing search directory
+     * @param directory Directory shared by the workers
+     * @return Search ready to be run by workers
+     * @throws IOException when the job file can't be read
+     */
+    public static ShardedSearch open(Path directory) throws IOException {
+        Properties job = new Properties();
+        try (Reader reader = Files.newBufferedReader(directory.resolve(JOB_FILE), StandardCharsets.UTF_8)) {
+            job.load(reader);
+        }
+        assertEquals("Unsupported search version", String.valueOf(VERSION), job.getProperty("version"));
+        return new ShardedSearch(directory,
+                job.getProperty("cipher-text"),
+                Integer.parseInt(job.getProperty("results")),
+                Integer.parseInt(job.getProperty("shards-per-order")),
+                Integer.parseInt(job.getProperty("restarts", "0")));
+    }
+
+    /**
+     * @param leaseMillis Time after which a claim without result is considered abandoned
+     */
+    public void setLeaseMillis(long leaseMillis) {
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * Read the rotor and reflector permutations of every shard from a database instead of computing them
+     * @param database Database opened for the reflector passed to work(), null to compute the permutations
+     */
+    public void setDatabase(ScramblerDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * @return Number of shards of the search
+     */
+    public int getShards() {
+        return orders.size() * shardsPerOrder;
+    }
+
+    /**
+     * Search every shard that is neither completed nor claimed by another worker, solving the plugboard of the
+     * candidates of every shard when the search uses an n-gram model
+     * @param reflector Reflector configuration used by the Machine
+     * @param pool Pool of threads searching every shard
+     * @return Number of shards searched by this worker
+     * @throws IOException when the directory can't be read or written
+     */
+    public int work(ReflectorConfiguration reflector, ForkJoinPool pool) throws IOException {
+
+        KeySearch search = new KeySearch(reflector, pool);
+        search.setDatabase(database);
+        PlugboardSolver solver = null;
+        if (restarts > 0) {
+            solver = new PlugboardSolver(NgramModel.load(directory.resolve(MODEL_FILE)), reflector, pool);
+            solver.setDatabase(database);
+        }
+        String cipherText = toText(letters);
+
+        // Claims are renewed by a daemon thread, so a stopped JVM never keeps renewing them
+        ScheduledExecutorService renewal = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "claim-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, leaseMillis / 3);
+        try {
+            int searched = 0;
+            for (int shard = 0; shard < getShards(); shard++) {
+                if (claim(shard)) {
+                    Path claim = file(shard, CLAIM);
+                    ScheduledFuture<?> lease = renewal.scheduleAtFixedRate(
+                            () -> renew(claim), period, period, TimeUnit.MILLISECONDS);
+                    try {
+                        int[] order = orders.get(shard / shardsPerOrder);
+                        int part = shard % shardsPerOrder;
+                        int fromState = (int) ((long) ScramblerTable.STATES * part / shardsPerOrder);
+                        int toState = (int) ((long) ScramblerTable.STATES * (part + 1) / shardsPerOrder);
+                        List<KeyCandidate> candidates = search.search(letters, order, fromState, toState, results).toList();
+                        List<PlugboardSolution> solutions = new ArrayList<>();
+                        if (solver != null) {
+                            for (KeyCandidate candidate : candidates) {
+                                solutions.add(solver.solve(cipherText, candidate, restarts, shard));
+                            }
+                        }
+                        writeResult(shard, candidates, solutions);
+                    } finally {
+                        lease.cancel(false);
+                    }
+                    searched++;
+                }
+            }
+            return searched;
+        } finally {
+            renewal.shutdownNow();
+        }
+
+    }
+
+    /**
+     * @return True when every shard has a result
+     */
+    public boolean isComplete() {
+        return completedShards() == getShards();
+    }
+
+    /**
+     * @return Number of shards with a result
+     */
+    public int completedShards() {
+        int completed = 0;
+        for (int shard = 0; shard < getShards(); shard++) {
+            if (Files.exists(file(shard, RESULT))) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Merge the results of the completed shards
+     * @return Best candidates sorted from the highest score to the lowest
+     * @throws IOException when some result can't be read
+     */
+    public List<KeyCandidate> merge() throws IOException {
+        KeyRanking ranking = new KeyRanking(results);
+        for (String[] fields : readResults()) {
+            ranking.add(candidate(fields));
+        }
+        return ranking.toList();
+    }
+
+    /**
+     * Merge the plugboard solutions of the completed shards, empty when the search has no n-gram model
+     * @return Best solutions sorted from the highest n-gram score to the lowest
+     * @throws IOException when some result can't be read
+     */
+    public List<PlugboardSolution> mergeSolutions() throws IOException {
+        List<PlugboardSolution> solutions = new ArrayList<>();
+        for (String[] fields : readResults()) {
+            if (fields.length > 5) {
+                solutions.add(new PlugboardSolution(candidate(fields), fields[5], Double.parseDouble(fields[6])));
+            }
+        }
+        return solutions.stream()
+                .sorted(Comparator.comparingDouble(PlugboardSolution::getScore).reversed())
+                .limit(results)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return Fields of every line of the completed shards: rotor numbers, positions and score, followed by
+     * plugboard and plugboard score when the plugboard was solved
+     */
+    private List<String[]> readResults() throws IOException {
+        List<String[]> lines = new ArrayList<>();
+        for (int shard = 0; shard < getShards(); shard++) {
+            Path result = file(shard, RESULT);
+            if (Files.exists(result)) {
+                for (String line : Files.readAllLines(result, StandardCharsets.UTF_8)) {
+                    lines.add(line.split(",", -1));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static KeyCandidate candidate(String[] fields) {
+        return new KeyCandidate(
+                Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                fields[3], Double.parseDouble(fields[4]));
+    }
+
+    /**
+     * Claim a shard creating the claim file, only one worker can create it
+     * @return True when the shard has no result and it has been claimed by this worker
+     */
+    private boolean claim(int shard) throws IOException {
+        if (Files.exists(file(shard, RESULT))) {
+            return false;
+        }
+        Path claim = file(shard, CLAIM);
+        try {
+            if (System.currentTimeMillis() - Files.getLastModifiedTime(claim).toMillis() > leaseMillis) {
+                Files.deleteIfExists(claim);
+            }
+        } catch (NoSuchFileException e) {
+            // Not claimed
+        }
+        try {
+            Files.writeString(Files.createFile(claim), worker());
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+        // The shard could have been completed before removing an abandoned claim
+        return !Files.exists(file(shard, RESULT));
+    }
+
+    /**
+     * Touch the claim file so other workers don't consider it abandoned
+     */
+    private static void renew(Path claim) {
+        try {
+            Files.setLastModifiedTime(claim, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Retried on next renewal, the claim is only lost when it's not renewed during the lease time
+        }
+    }
+
+    private void writeResult(int shard, List<KeyCandidate> candidates, List<PlugboardSolution> solutions)
+            throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < candidates.size(); i++) {
+            KeyCandidate candidate = candidates.get(i);
+            lines.append(candidate.getRightRotor()).append(',')
+                    .append(candidate.getMiddleRotor()).append(',')
+                    .append(candidate.getLeftRotor()).append(',')
+                    .append(candidate.getPositions()).append(',')
+                    .append(candidate.getScore());
+            if (i < solutions.size()) {
+                lines.append(',').append(solutions.get(i).getPlugboard())
+                        .append(',').append(solutions.get(i).getScore());
+            }
+            lines.append('\n');
+        }
+        Path temporary = Files.createTempFile(directory, String.format("%04d", shard), ".tmp");
+        Files.writeString(temporary, lines);
+        Files.move(temporary, file(shard, RESULT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path file(int shard, String extension) {
+        return directory.resolve(String.format("%04d", shard) + extension);
+    }
+
+    private static String worker() {
+        String host = System.getenv("HOSTNAME");
+        return (host == null ? "localhost" : host) + ":" + ProcessHandle.current().pid();
+    }
+
+    private static String toText(byte[] letters) {
+        StringBuilder text = new StringBuilder(letters.length);
+        for (byte letter : letters) {
+            text.append((char) ('A' + letter));
+        }
+        return text.toString();
+    }
+
+}
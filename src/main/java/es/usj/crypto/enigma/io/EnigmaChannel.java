@@ -0,0 +1,75 @@
+package es.usj.crypto.enigma.io;
+
+import es.usj.crypto.enigma.Machine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writable channel ciphering ASCII bytes with a Machine before writing them to the underlying channel
+ *
+ * Bytes are copied to an internal buffer before being ciphered, so buffers written by the caller are not modified.
+ * Every call writes all the remaining bytes of the source buffer to the underlying channel, so the underlying
+ * channel should be in blocking mode: ciphered bytes can't be kept for a later call, as rotors have already moved
+ */
+public class EnigmaChannel implements WritableByteChannel {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final WritableByteChannel channel;
+    private final Machine machine;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean open = true;
+
+    /**
+     * Channel settings
+     * @param channel Channel receiving the ciphered bytes
+     * @param machine Machine used to cipher the bytes, rotors position is updated when ciphering
+     */
+    public EnigmaChannel(WritableByteChannel channel, Machine machine) {
+        this.channel = channel;
+        this.machine = machine;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        // A non blocking channel may write no byte at all, and writing the ciphered bytes would never end
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalBlockingModeException();
+        }
+        int written = 0;
+        while (src.hasRemaining()) {
+            buffer.clear();
+            int length = Math.min(src.remaining(), buffer.capacity());
+            ByteBuffer slice = src.duplicate();
+            slice.limit(slice.position() + length);
+            buffer.put(slice).flip();
+            machine.encipher(buffer.array(), 0, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            src.position(src.position() + length);
+            written += length;
+        }
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        open = false;
+        channel.close();
+    }
+
+}
@@ -0,0 +1,79 @@
+package es.usj.crypto.enigma.io;
+
+import es.usj.crypto.enigma.Machine;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream ciphering with a Machine the ASCII bytes read from the underlying stream
+ *
+ * Bytes are ciphered in place in the caller array. Skipped bytes are also ciphered, so the rotors position
+ * is always the one after the last byte consumed from the underlying stream. Mark and reset are not supported
+ */
+public class EnigmaInputStream extends FilterInputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Machine machine;
+    private final byte[] single = new byte[1];
+
+    /**
+     * Input stream settings
+     * @param in Stream providing the plain bytes
+     * @param machine Machine used to cipher the bytes, rotors position is updated when ciphering
+     */
+    public EnigmaInputStream(InputStream in, Machine machine) {
+        super(in);
+        this.machine = machine;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read > 0) {
+            machine.encipher(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // Rotors position can't be restored
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("Mark and reset are not supported");
+    }
+
+}
@@ -0,0 +1,51 @@
+package es.usj.crypto.enigma.io;
+
+import es.usj.crypto.enigma.Machine;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream ciphering ASCII bytes with a Machine before writing them to the underlying stream
+ *
+ * Bytes are copied to an internal buffer before being ciphered, so arrays written by the caller are not modified.
+ * Characters not in the ALPHABET or blank spaces are rejected with an AssertionError, as in Machine
+ */
+public class EnigmaOutputStream extends FilterOutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Machine machine;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * Output stream settings
+     * @param out Stream receiving the ciphered bytes
+     * @param machine Machine used to cipher the bytes, rotors position is updated when ciphering
+     */
+    public EnigmaOutputStream(OutputStream out, Machine machine) {
+        super(out);
+        this.machine = machine;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        buffer[0] = (byte) b;
+        machine.encipher(buffer, 0, 1);
+        out.write(buffer[0]);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int length = Math.min(len, buffer.length);
+            System.arraycopy(b, off, buffer, 0, length);
+            machine.encipher(buffer, 0, length);
+            out.write(buffer, 0, length);
+            off += length;
+            len -= length;
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package es.usj.crypto.enigma.io;
+
+import es.usj.crypto.enigma.Machine;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader ciphering with a Machine the characters read from the underlying reader
+ *
+ * Characters are ciphered in place in the caller array. Skipped characters are also ciphered, so the rotors
+ * position is always the one after the last character consumed from the underlying reader.
+ * Mark and reset are not supported
+ */
+public class EnigmaReader extends FilterReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Machine machine;
+    private final char[] single = new char[1];
+
+    /**
+     * Reader settings
+     * @param in Reader providing the plain characters
+     * @param machine Machine used to cipher the characters, rotors position is updated when ciphering
+     */
+    public EnigmaReader(Reader in, Machine machine) {
+        super(in);
+        this.machine = machine;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0];
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        int read = in.read(cbuf, off, len);
+        if (read > 0) {
+            machine.encipher(cbuf, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of characters to skip should be 0 or more");
+        }
+        char[] buffer = new char[(int) Math.min(n, BUFFER_SIZE)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("Mark and reset are not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("Mark and reset are not supported");
+    }
+
+}
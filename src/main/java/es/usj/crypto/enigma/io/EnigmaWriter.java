@@ -0,0 +1,63 @@
+package es.usj.crypto.enigma.io;
+
+import es.usj.crypto.enigma.Machine;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer ciphering characters with a Machine before writing them to the underlying writer
+ *
+ * Characters are copied to an internal buffer before being ciphered, so arrays written by the caller are not modified.
+ * Characters not in the ALPHABET or blank spaces are rejected with an AssertionError, as in Machine
+ */
+public class EnigmaWriter extends FilterWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Machine machine;
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /**
+     * Writer settings
+     * @param out Writer receiving the ciphered characters
+     * @param machine Machine used to cipher the characters, rotors position is updated when ciphering
+     */
+    public EnigmaWriter(Writer out, Machine machine) {
+        super(out);
+        this.machine = machine;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        buffer[0] = (char) c;
+        machine.encipher(buffer, 0, 1);
+        out.write(buffer[0]);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        while (len > 0) {
+            int length = Math.min(len, buffer.length);
+            System.arraycopy(cbuf, off, buffer, 0, length);
+            machine.encipher(buffer, 0, length);
+            out.write(buffer, 0, length);
+            off += length;
+            len -= length;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        while (len > 0) {
+            int length = Math.min(len, buffer.length);
+            str.getChars(off, off + length, buffer, 0);
+            machine.encipher(buffer, 0, length);
+            out.write(buffer, 0, length);
+            off += length;
+            len -= length;
+        }
+    }
+
+}
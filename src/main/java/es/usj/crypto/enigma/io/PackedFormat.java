@@ -0,0 +1,32 @@
+package es.usj.crypto.enigma.io;
+
+/**
+ * Layout of the packed text files written by PackedOutputStream and read by PackedInputStream
+ *
+ * Letters are stored with 5 bits each (ALPHABET index), most significant bit first, and the last byte is padded
+ * with zeros. Blank spaces are stored after the letters in a sparse table with an entry for every blank, holding
+ * the number of letters since the previous blank (gap) as a variable length integer (7 bits per byte, lowest
+ * bits first, high bit set when more bytes follow):
+ *     gap << 1        for a space
+ *     gap << 1 | 1    for any other blank, followed by the blank byte
+ * so a space between groups of letters takes a single byte
+ *
+ * The header is patched when the file is closed, numbers are big endian:
+ *     magic "ENPK" | version | characters (8 bytes) | letters (8 bytes) | blank table offset (8 bytes) | CRC32
+ * The CRC32 is computed over the unpacked text, with letters in upper case
+ */
+final class PackedFormat {
+
+    // First bytes of a packed file, "ENPK" in ASCII
+    static final int MAGIC = 0x454E504B;
+    // Version of the packed file layout
+    static final int VERSION = 1;
+    // Bytes before the packed letters
+    static final int HEADER_SIZE = 36;
+    // Bits of every letter
+    static final int LETTER_BITS = 5;
+
+    private PackedFormat() {
+    }
+
+}
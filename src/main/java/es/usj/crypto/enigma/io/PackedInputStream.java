@@ -0,0 +1,192 @@
+package es.usj.crypto.enigma.io;
+
+import es.usj.crypto.enigma.Machine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Input stream unpacking a file written by PackedOutputStream into ASCII text, letters in upper case
+ *
+ * Packed letters and the blank table are read from the channel in chunks as the text is consumed, so the stream
+ * can be wrapped by an EnigmaInputStream or read by FileCipher to cipher the text with no intermediate file.
+ * The checksum in the header is verified when the last character is read. Mark and reset are not supported
+ */
+public class PackedInputStream extends InputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final SeekableByteChannel channel;
+    private final byte[] single = new byte[1];
+    private final CRC32 crc = new CRC32();
+
+    // Header values
+    private final long characters;
+    private final long blankTable;
+    private final long end;
+    private final int checksum;
+
+    // Packed letters read from the channel, and position of the next chunk
+    private final ByteBuffer letterBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long letterPosition = PackedFormat.HEADER_SIZE;
+    // Blank table entries read from the channel, and position of the next chunk
+    private final ByteBuffer blankBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long blankPosition;
+
+    // Bits not unpacked yet, the lowest bitCount bits of bits
+    private int bits;
+    private int bitCount;
+    private long read;
+    // Letters before the next blank and the next blank, Long.MAX_VALUE when there are no more blanks
+    private long gap;
+    private int blank;
+
+    /**
+     * Packed input stream settings, the header is read and validated
+     * @param channel Channel providing the packed text, usually a FileChannel, closed when the stream is closed
+     *                or when the header is not valid
+     * @throws IOException when the channel can't be read or doesn't include a packed text
+     */
+    public PackedInputStream(SeekableByteChannel channel) throws IOException {
+
+        this.channel = channel;
+        try {
+
+            ByteBuffer header = ByteBuffer.allocate(PackedFormat.HEADER_SIZE);
+            channel.position(0);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Reading the whole header
+            }
+            if (header.hasRemaining() || header.getInt(0) != PackedFormat.MAGIC) {
+                throw new IOException("Not a packed text");
+            }
+            if (header.getInt(4) != PackedFormat.VERSION) {
+                throw new IOException("Packed text version " + header.getInt(4) + " is not supported");
+            }
+            characters = header.getLong(8);
+            long letters = header.getLong(16);
+            blankTable = header.getLong(24);
+            checksum = header.getInt(32);
+            end = channel.size();
+            if (characters < letters || blankTable != PackedFormat.HEADER_SIZE + (letters * PackedFormat.LETTER_BITS + 7) / 8
+                    || blankTable > end) {
+                throw new IOException("Packed text header doesn't match the file size");
+            }
+
+            blankPosition = blankTable;
+            letterBuffer.limit(0);
+            blankBuffer.limit(0);
+            nextBlank();
+
+        } catch (IOException e) {
+            // The stream is never returned, so the channel is closed here
+            channel.close();
+            throw e;
+        }
+
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (read == characters) {
+            return -1;
+        }
+        int length = (int) Math.min(len, characters - read);
+        for (int i = off; i < off + length; i++) {
+            if (gap == 0) {
+                b[i] = (byte) blank;
+                nextBlank();
+            } else {
+                b[i] = (byte) ('A' + unpack());
+                gap--;
+            }
+        }
+        crc.update(b, off, length);
+        read += length;
+
+        if (read == characters && (int) crc.getValue() != checksum) {
+            throw new IOException("Packed text checksum doesn't match");
+        }
+        return length;
+
+    }
+
+    private int unpack() throws IOException {
+        if (bitCount < PackedFormat.LETTER_BITS) {
+            if (!letterBuffer.hasRemaining()) {
+                letterPosition = fill(letterBuffer, letterPosition, blankTable);
+            }
+            bits = bits << 8 | (letterBuffer.get() & 0xFF);
+            bitCount += 8;
+        }
+        bitCount -= PackedFormat.LETTER_BITS;
+        int index = bits >>> bitCount;
+        bits &= (1 << bitCount) - 1;
+        if (index >= 26) {
+            throw new IOException("Packed text includes an invalid letter");
+        }
+        return index;
+    }
+
+    private void nextBlank() throws IOException {
+        if (blankPosition == end && !blankBuffer.hasRemaining()) {
+            gap = Long.MAX_VALUE;
+            return;
+        }
+        long entry = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = nextBlankByte();
+            entry |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        gap = entry >>> 1;
+        blank = (entry & 1) == 0 ? ' ' : nextBlankByte();
+        if (!Machine.isBlank(blank)) {
+            throw new IOException("Packed text includes an invalid blank");
+        }
+    }
+
+    private int nextBlankByte() throws IOException {
+        if (!blankBuffer.hasRemaining()) {
+            blankPosition = fill(blankBuffer, blankPosition, end);
+        }
+        return blankBuffer.get() & 0xFF;
+    }
+
+    /**
+     * Read the next chunk of a region of the channel
+     * @return Position of the chunk after the one read
+     */
+    private long fill(ByteBuffer buffer, long position, long limit) throws IOException {
+        if (position >= limit) {
+            throw new IOException("Packed text is truncated");
+        }
+        buffer.clear().limit((int) Math.min(buffer.capacity(), limit - position));
+        channel.position(position);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Packed text is truncated");
+            }
+        }
+        buffer.flip();
+        return position + buffer.limit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,211 @@
+package es.usj.crypto.enigma.io;
+
+import es.usj.crypto.enigma.Machine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Output stream packing ASCII text into the packed format: 5 bits for every letter and a sparse table of blanks
+ *
+ * Letters are written to the channel as they are packed. The blank table is buffered and spilled to a temporary
+ * file when the buffer is full, and it's appended to the letters when the stream is closed. Finally the header is
+ * written with the final lengths and checksum. Lower case letters are stored in upper case. Characters not in the
+ * ALPHABET or blank spaces are rejected with an AssertionError, as in Machine
+ *
+ * When some write fails, closing the stream doesn't write the header, so the truncated text can't be read
+ */
+public class PackedOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final SeekableByteChannel channel;
+    // Packed letters waiting to be written
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    // Upper case text of every write, to compute the checksum in bulk
+    private final byte[] text = new byte[BUFFER_SIZE];
+    private final CRC32 crc = new CRC32();
+    // Blank table entries not spilled yet
+    private final ByteBuffer blanks = ByteBuffer.allocate(BUFFER_SIZE);
+    // Temporary file receiving the blank table when it doesn't fit in the buffer, deleted when closed
+    private FileChannel spill;
+    private final byte[] single = new byte[1];
+
+    // Bits not written yet, the lowest bitCount bits of bits
+    private int bits;
+    private int bitCount;
+    private long characters;
+    private long letters;
+    // Letters since the previous blank
+    private long gap;
+    private boolean closed;
+    private boolean failed;
+
+    /**
+     * Packed output stream settings, the channel is written from the start
+     * @param channel Channel receiving the packed text, usually a FileChannel, closed when the stream is closed
+     * @throws IOException when the header can't be reserved
+     */
+    public PackedOutputStream(SeekableByteChannel channel) throws IOException {
+        this.channel = channel;
+        channel.position(0);
+        write(ByteBuffer.allocate(PackedFormat.HEADER_SIZE));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        // Any character not written leaves the stream failed, even if the caller goes on writing
+        boolean written = false;
+        try {
+            writeText(b, off, len);
+            written = true;
+        } finally {
+            failed |= !written;
+        }
+    }
+
+    private void writeText(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int length = Math.min(len, text.length);
+            for (int i = 0; i < length; i++) {
+                int c = b[off + i];
+                int index = Machine.letterIndex(c);
+                if (index >= 0) {
+                    text[i] = (byte) ('A' + index);
+                    pack(index);
+                } else if (Machine.isBlank(c)) {
+                    text[i] = (byte) c;
+                    blank(c);
+                } else {
+                    fail("Plain text includes characters not in the ALPHABET or not considered as blank space");
+                }
+            }
+            crc.update(text, 0, length);
+            characters += length;
+            off += length;
+            len -= length;
+        }
+    }
+
+    private void pack(int index) throws IOException {
+        bits = bits << PackedFormat.LETTER_BITS | index;
+        bitCount += PackedFormat.LETTER_BITS;
+        if (bitCount >= 8) {
+            bitCount -= 8;
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+            buffer.put((byte) (bits >>> bitCount));
+            bits &= (1 << bitCount) - 1;
+        }
+        letters++;
+        gap++;
+    }
+
+    private void blank(int c) throws IOException {
+        // Room for the longest entry: a 64 bits variable length integer and the blank byte
+        if (blanks.remaining() < 11) {
+            spillBlanks();
+        }
+        long entry = gap << 1 | (c == ' ' ? 0 : 1);
+        while (entry >= 0x80) {
+            blanks.put((byte) ((entry & 0x7F) | 0x80));
+            entry >>>= 7;
+        }
+        blanks.put((byte) entry);
+        if (c != ' ') {
+            blanks.put((byte) c);
+        }
+        gap = 0;
+    }
+
+    private void spillBlanks() throws IOException {
+        if (spill == null) {
+            spill = FileChannel.open(Files.createTempFile("blanks", ".tmp"), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        write(spill, blanks.flip());
+        blanks.clear();
+    }
+
+    /**
+     * Write the pending letters, the blank table and the header, and close the channel
+     * The header is not written when some write failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (channel; FileChannel blankTable = spill) {
+            if (!failed) {
+                finish(blankTable);
+            }
+        }
+    }
+
+    private void finish(FileChannel spilled) throws IOException {
+
+        if (bitCount > 0) {
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+            buffer.put((byte) (bits << (8 - bitCount)));
+        }
+        flushBuffer();
+        long blankTable = channel.position();
+        if (spilled != null) {
+            // Spilled entries are copied in chunks, the table is never loaded in memory
+            spilled.position(0);
+            while (spilled.read(buffer) > 0) {
+                flushBuffer();
+            }
+        }
+        write(channel, blanks.flip());
+
+        ByteBuffer header = ByteBuffer.allocate(PackedFormat.HEADER_SIZE);
+        header.putInt(PackedFormat.MAGIC).putInt(PackedFormat.VERSION)
+                .putLong(characters).putLong(letters).putLong(blankTable).putInt((int) crc.getValue());
+        channel.position(0);
+        write(header.flip());
+
+    }
+
+    private void flushBuffer() throws IOException {
+        write(buffer.flip());
+        buffer.clear();
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+        write(channel, bytes);
+    }
+
+    private static void write(SeekableByteChannel target, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            target.write(bytes);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package es.usj.crypto.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import es.usj.crypto.CipherStats;
+import es.usj.crypto.enigma.EnigmaCursor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ciphers the body of a POST request into the response body, the key is read from the query parameters
+ *
+ * The body is ciphered while it's received, using a buffer of fixed size. The first buffer is ciphered before
+ * sending the response headers, so wrong keys and wrong characters at the beginning of the body are answered
+ * with 400 Bad Request. When a wrong character is found after sending the headers, the connection is closed
+ * without completing the response
+ */
+class CipherHandler implements HttpHandler {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final KeyCache keys;
+    private final CipherStats stats;
+    private final MeterRegistry registry;
+    private final Counter bytes;
+    // Encryption and decryption are the same operation, the name is only used for the metrics
+    private final String operation;
+
+    CipherHandler(String operation, KeyCache keys, CipherStats stats, MeterRegistry registry) {
+        this.operation = operation;
+        this.keys = keys;
+        this.stats = stats;
+        this.registry = registry;
+        this.bytes = Counter.builder("enigma.server.bytes")
+                .description("Bytes ciphered")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "aborted";
+        try {
+            outcome = cipher(exchange);
+        } finally {
+            exchange.close();
+            sample.stop(Timer.builder("enigma.server.requests")
+                    .description("Cipher requests latency")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(registry));
+        }
+    }
+
+    private String cipher(HttpExchange exchange) throws IOException {
+
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "Use POST to send the text to be ciphered");
+            return "rejected";
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        InputStream in = exchange.getRequestBody();
+        long time = System.nanoTime();
+        int read = in.readNBytes(buffer, 0, buffer.length);
+        time = record(CipherStats.Phase.READ, time);
+
+        EnigmaCursor cursor;
+        try {
+            cursor = keys.get(parameters(exchange.getRequestURI().getRawQuery())).newCursor();
+            cursor.encipher(buffer, 0, read);
+        } catch (AssertionError e) {
+            sendError(exchange, 400, e.getMessage());
+            return "rejected";
+        }
+        time = record(CipherStats.Phase.ENCIPHER, time);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=US-ASCII");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        while (read > 0) {
+            out.write(buffer, 0, read);
+            time = record(CipherStats.Phase.WRITE, time);
+            bytes.increment(read);
+            stats.addBytes(read);
+            read = in.read(buffer);
+            time = record(CipherStats.Phase.READ, time);
+            if (read > 0) {
+                try {
+                    cursor.encipher(buffer, 0, read);
+                } catch (AssertionError e) {
+                    // Response status has been sent, closing the connection is the only way to report the error
+                    throw new IOException(e.getMessage(), e);
+                } finally {
+                    time = record(CipherStats.Phase.ENCIPHER, time);
+                }
+            }
+        }
+        out.close();
+        stats.addLetters(cursor.getLetters());
+        return "success";
+
+    }
+
+    private long record(CipherStats.Phase phase, long start) {
+        long now = System.nanoTime();
+        stats.record(phase, now - start);
+        return now;
+    }
+
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    parameters.put(
+                            URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                            URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package es.usj.crypto.server;
+
+import com.sun.net.httpserver.HttpServer;
+import es.usj.crypto.CipherStats;
+import es.usj.crypto.CipherStatsMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * HTTP service ciphering request bodies, so clients don't need to start a JVM for every message
+ *
+ *     POST /encrypt?plugboard=IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK&right-rotor=1&right-rotor-position=F&...
+ *     POST /decrypt?...  (same operation, as Enigma is reciprocal)
+ *     GET  /metrics
+ *
+ * Key parameters have the same names than command line arguments. Requests are handled by a fixed number of
+ * worker threads with a bounded queue: when the queue is full, the thread accepting connections handles the
+ * request, so no more connections are accepted until some request is completed
+ */
+public class EnigmaServer {
+
+    // Pending requests for every worker thread
+    private static final int QUEUE_SIZE_PER_THREAD = 16;
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Server settings, the server is not listening until start() is invoked
+     * @param address Local address and port, use port 0 to get any free port
+     * @param threads Number of worker threads
+     * @param registry Registry receiving latency, throughput and worker metrics
+     * @throws IOException when the address can't be used
+     */
+    public EnigmaServer(InetSocketAddress address, int threads, MeterRegistry registry) throws IOException {
+
+        assertTrue("Number of threads should be 1 or more", threads >= 1);
+
+        AtomicInteger workers = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_SIZE_PER_THREAD),
+                runnable -> new Thread(runnable, "enigma-server-" + workers.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        CipherStats stats = new CipherStats();
+        new CipherStatsMetrics(stats).bindTo(registry);
+
+        KeyCache keys = new KeyCache();
+        Gauge.builder("enigma.server.keys", keys, KeyCache::size)
+                .description("Cached keys")
+                .register(registry);
+
+        server = HttpServer.create(address, 0);
+        server.createContext("/encrypt", new CipherHandler("encrypt", keys, stats, registry));
+        server.createContext("/decrypt", new CipherHandler("decrypt", keys, stats, registry));
+        server.createContext("/metrics", new MetricsHandler(registry));
+        server.setExecutor(ExecutorServiceMetrics.monitor(registry, executor, "enigma.server"));
+
+    }
+
+    /**
+     * Start listening for requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop listening and wait for current requests to be completed
+     * @param delay Maximum time to wait for current requests in seconds
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdown();
+    }
+
+    /**
+     * @return Local port, useful when the server was created with port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+}
@@ -0,0 +1,88 @@
+package es.usj.crypto.server;
+
+import es.usj.crypto.enigma.EnigmaKey;
+import es.usj.crypto.enigma.Plugboard;
+import es.usj.crypto.enigma.Reflector;
+import es.usj.crypto.enigma.Rotor;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validated keys shared by every request, so a key is only built and validated the first time it's used
+ *
+ * Keys are identified by the same parameters used in the command line. The cache is emptied when it's full,
+ * as clients usually send a small number of different keys
+ */
+class KeyCache {
+
+    // Maximum number of cached keys
+    static final int MAX_KEYS = 1024;
+
+    private final Map<String, EnigmaKey> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Key for some parameters, validating them when the key is not in the cache
+     * @param parameters plugboard, right-rotor, right-rotor-position, middle-rotor, middle-rotor-position,
+     *                   left-rotor and left-rotor-position
+     * @return Key for the parameters
+     */
+    EnigmaKey get(Map<String, String> parameters) {
+        String id = String.join("|",
+                parameters.get("plugboard"),
+                parameters.get("right-rotor"), parameters.get("right-rotor-position"),
+                parameters.get("middle-rotor"), parameters.get("middle-rotor-position"),
+                parameters.get("left-rotor"), parameters.get("left-rotor-position"));
+        EnigmaKey key = keys.get(id);
+        if (key == null) {
+            key = newKey(parameters);
+            if (keys.size() >= MAX_KEYS) {
+                keys.clear();
+            }
+            keys.put(id, key);
+        }
+        return key;
+    }
+
+    /**
+     * @return Number of cached keys
+     */
+    int size() {
+        return keys.size();
+    }
+
+    private static EnigmaKey newKey(Map<String, String> parameters) {
+        return new EnigmaKey(
+                new Plugboard(required(parameters, "plugboard")),
+                new Rotor(rotor(parameters, "right-rotor"), position(parameters, "right-rotor-position")),
+                new Rotor(rotor(parameters, "middle-rotor"), position(parameters, "middle-rotor-position")),
+                new Rotor(rotor(parameters, "left-rotor"), position(parameters, "left-rotor-position")),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        assertNotNull("Use '" + name + "' parameter", value);
+        return value;
+    }
+
+    private static RotorConfiguration rotor(Map<String, String> parameters, String name) {
+        String value = required(parameters, name);
+        assertTrue("Use '" + name + "' parameter to select the rotor configuration (from 1 to 5)",
+                value.matches("[1-5]"));
+        return RotorConfiguration.getRotorConfiguration(Integer.parseInt(value));
+    }
+
+    private static char position(Map<String, String> parameters, String name) {
+        String value = required(parameters, name);
+        assertTrue("Use '" + name + "' parameter to select the rotor initial position (from A to Z)",
+                value.length() == 1);
+        return value.charAt(0);
+    }
+
+}
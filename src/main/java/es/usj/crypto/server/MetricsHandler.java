@@ -0,0 +1,48 @@
+package es.usj.crypto.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes every meter of the registry as plain text, one line for every measurement:
+ *     enigma.server.requests{operation=encrypt,outcome=success} TOTAL_TIME 0.0123
+ */
+class MetricsHandler implements HttpHandler {
+
+    private final MeterRegistry registry;
+
+    MetricsHandler(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        StringBuilder metrics = new StringBuilder();
+        for (Meter meter : registry.getMeters()) {
+            StringBuilder id = new StringBuilder(meter.getId().getName()).append('{');
+            for (Tag tag : meter.getId().getTags()) {
+                id.append(id.charAt(id.length() - 1) == '{' ? "" : ",").append(tag.getKey()).append('=').append(tag.getValue());
+            }
+            id.append('}');
+            for (Measurement measurement : meter.measure()) {
+                metrics.append(id).append(' ').append(measurement.getStatistic()).append(' ')
+                        .append(measurement.getValue()).append('\n');
+            }
+        }
+        byte[] body = metrics.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package es.usj.crypto;
+
+import es.usj.crypto.enigma.Machine;
+import es.usj.crypto.enigma.Plugboard;
+import es.usj.crypto.enigma.Reflector;
+import es.usj.crypto.enigma.Rotor;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchCipherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void cipherManifest() throws Exception {
+
+        Path root = folder.getRoot().toPath();
+        StringBuilder manifest = new StringBuilder(
+                "input-file,output-file,plugboard,right-rotor,right-rotor-position,middle-rotor,middle-rotor-position,left-rotor,left-rotor-position\n");
+        for (int i = 0; i < 20; i++) {
+            Files.writeString(root.resolve("plain" + i + ".txt"), "Every secret creates a potential failure point " + (char) ('A' + i));
+            manifest.append("plain").append(i).append(".txt,cipher").append(i).append(".txt,")
+                    .append("IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK,1,").append((char) ('A' + i)).append(",2,S,3,E\n");
+        }
+        manifest.append("\n# Wrong jobs\n");
+        manifest.append("plain0.txt,wrong.txt,IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK,1,F,1,F,3,E\n");
+        manifest.append("plain0.txt,wrong.txt\n");
+        Path manifestFile = root.resolve("jobs.csv");
+        Files.writeString(manifestFile, manifest);
+
+        List<BatchCipher.Result> results = new BatchCipher(3).cipher(manifestFile);
+
+        assertEquals(22, results.size());
+        for (int i = 0; i < 20; i++) {
+            BatchCipher.Result result = results.get(i);
+            assertTrue(result.isSuccess());
+            assertEquals(i + 2, result.getLine());
+            Machine machine = new Machine(
+                    new Plugboard("IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK"),
+                    new Rotor(RotorConfiguration.ROTOR_I, (char) ('A' + i)),
+                    new Rotor(RotorConfiguration.ROTOR_II, 'S'),
+                    new Rotor(RotorConfiguration.ROTOR_III, 'E'),
+                    new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+            assertEquals(machine.getCipheredText("Every secret creates a potential failure point " + (char) ('A' + i)),
+                    Files.readString(root.resolve("cipher" + i + ".txt")));
+        }
+        assertTrue(results.get(20).getError().contains("Each rotor configuration should be different"));
+        assertTrue(results.get(21).getError().contains("should include 9 fields"));
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        BatchCipher.report(results, 1_000_000_000L, new PrintStream(report, true, StandardCharsets.UTF_8));
+        assertTrue(report.toString(StandardCharsets.UTF_8).contains("22 jobs, 2 failed, 960 bytes in 1.000 s"));
+
+    }
+
+}
@@ -0,0 +1,70 @@
+package es.usj.crypto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class CipherStatsTest {
+
+    @Test
+    public void phaseTimer() {
+        CipherStats stats = new CipherStats();
+        IntStream.range(0, 1000).parallel().forEach(i -> stats.record(CipherStats.Phase.ENCIPHER, i < 990 ? 100 : 5000));
+
+        CipherStats.PhaseTimer timer = stats.getTimer(CipherStats.Phase.ENCIPHER);
+        assertEquals(1000, timer.getCount());
+        assertEquals(990 * 100 + 10 * 5000, timer.getTotalNanos());
+        assertEquals(5000, timer.getMaxNanos());
+        // 100 is counted in bucket [64, 128) and 5000 in bucket [4096, 8192)
+        assertEquals(128, timer.percentile(0.5));
+        assertEquals(128, timer.percentile(0.99));
+        assertEquals(8192, timer.percentile(1.0));
+        assertEquals(0, stats.getTimer(CipherStats.Phase.READ).percentile(0.99));
+    }
+
+    @Test
+    public void report() {
+        CipherStats stats = new CipherStats();
+        stats.addBytes(2 * 1024 * 1024);
+        stats.addLetters(1_000_000);
+        stats.record(CipherStats.Phase.WRITE, 2000);
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        stats.report(1_000_000_000L, new PrintStream(report, true, StandardCharsets.UTF_8));
+        String text = report.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("2097152 bytes, 1000000 letters in 1.000 s (2.00 MB/s, 1000000 letters/s)"));
+        assertTrue(text.contains("write    1 times, total 0.002 ms"));
+    }
+
+    @Test
+    public void metrics() {
+        CipherStats stats = new CipherStats();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new CipherStatsMetrics(stats).bindTo(registry);
+
+        stats.addBytes(100);
+        stats.addLetters(80);
+        stats.record(CipherStats.Phase.READ, 3_000_000);
+
+        assertEquals(100.0, registry.get("enigma.cipher.bytes").functionCounter().count(), 0.0);
+        assertEquals(80.0, registry.get("enigma.cipher.letters").functionCounter().count(), 0.0);
+        assertEquals(1.0, registry.get("enigma.cipher.phase").tag("phase", "read").functionTimer().count(), 0.0);
+        assertEquals(3.0, registry.get("enigma.cipher.phase").tag("phase", "read").functionTimer()
+                .totalTime(TimeUnit.MILLISECONDS), 0.0);
+        assertEquals(0.003, registry.get("enigma.cipher.phase.max").tag("phase", "read").gauge().value(), 1e-9);
+        // 3 ms is in the 2^21 .. 2^22 nanos bucket
+        assertEquals(0.0, registry.get("enigma.cipher.phase.histogram").tags("phase", "read", "le", "0.002097152")
+                .gauge().value(), 0.0);
+        assertEquals(1.0, registry.get("enigma.cipher.phase.histogram").tags("phase", "read", "le", "0.004194304")
+                .gauge().value(), 0.0);
+        assertEquals(31, registry.get("enigma.cipher.phase.histogram").tag("phase", "write").gauges().size());
+    }
+
+}
@@ -0,0 +1,140 @@
+package es.usj.crypto;
+
+import es.usj.crypto.enigma.Machine;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static es.usj.crypto.enigma.TestMachines.readmeMachine;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FileCipherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameOutputAsWholeText() throws Exception {
+        assertSameOutputAsWholeText(1);
+    }
+
+    @Test
+    public void parallelSameOutputAsWholeText() throws Exception {
+        assertSameOutputAsWholeText(3);
+    }
+
+    private void assertSameOutputAsWholeText(int threads) throws Exception {
+
+        // Several chunks, last one incomplete
+        StringBuilder plainText = new StringBuilder();
+        Random random = new Random(3);
+        while (plainText.length() < 3 * threads * FileCipher.CHUNK_SIZE + 123) {
+            plainText.append(random.nextInt(6) == 0 ? '\n' : Machine.ALPHABET.charAt(random.nextInt(26)));
+        }
+
+        Path in = folder.newFile().toPath();
+        Path out = folder.getRoot().toPath().resolve("cipher.txt");
+        Files.writeString(in, plainText);
+
+        new FileCipher(readmeMachine(), threads).cipher(in, out);
+
+        assertEquals(readmeMachine().getCipheredText(plainText.toString()), Files.readString(out));
+
+    }
+
+    @Test
+    public void packedFiles() throws Exception {
+
+        Path in = folder.newFile().toPath();
+        Path packed = folder.getRoot().toPath().resolve("cipher.packed");
+        Path out = folder.getRoot().toPath().resolve("plain.txt");
+        String plainText = "Every secret creates a potential failure point\n".repeat(3000);
+        Files.writeString(in, plainText);
+
+        new FileCipher(readmeMachine(), 2).cipher(in, FileCipher.Format.TEXT, packed, FileCipher.Format.PACKED);
+        // 40 letters in 25 bytes and 7 blanks in 8 bytes for every line of 47 bytes
+        assertTrue(Files.size(packed) < Files.size(in) * 3 / 4);
+
+        // Deciphering the packed file gives the plain text in upper case, in chunks as large as for text files
+        CipherStats stats = new CipherStats();
+        new FileCipher(readmeMachine(), 2, stats).cipher(packed, FileCipher.Format.PACKED, out, FileCipher.Format.TEXT);
+        assertEquals(plainText.toUpperCase(), Files.readString(out));
+        // 141,000 bytes are read in 2 chunks of 128 KB
+        assertEquals(2, stats.getTimer(CipherStats.Phase.READ).getCount());
+
+    }
+
+    @Test
+    public void failedPackedFileIsDeleted() throws Exception {
+
+        // The last chunk includes a digit, so the Machine fails after packing the first chunks
+        Path in = folder.newFile().toPath();
+        Path packed = folder.getRoot().toPath().resolve("cipher.packed");
+        Files.writeString(in, "Every secret creates a potential failure point\n".repeat(3000) + "Point 1");
+
+        try {
+            new FileCipher(readmeMachine()).cipher(in, FileCipher.Format.TEXT, packed, FileCipher.Format.PACKED);
+            fail("Plain text with digits ciphered");
+        } catch (AssertionError e) {
+            assertFalse(Files.exists(packed));
+        }
+
+    }
+
+    @Test
+    public void stats() throws Exception {
+
+        Path in = folder.newFile().toPath();
+        Path out = folder.getRoot().toPath().resolve("cipher.txt");
+        Files.writeString(in, "Every secret creates a potential failure point\n".repeat(3000));
+
+        CipherStats stats = new CipherStats();
+        new FileCipher(readmeMachine(), 1, stats).cipher(in, out);
+
+        assertEquals(Files.size(in), stats.getBytes());
+        assertEquals(40 * 3000, stats.getLetters());
+        // 144,000 bytes are read in 3 chunks
+        assertEquals(3, stats.getTimer(CipherStats.Phase.READ).getCount());
+        assertEquals(3, stats.getTimer(CipherStats.Phase.ENCIPHER).getCount());
+        assertEquals(3, stats.getTimer(CipherStats.Phase.WRITE).getCount());
+
+    }
+
+    @Test
+    public void flightRecorderEvents() throws Exception {
+
+        Path in = folder.newFile().toPath();
+        Path out = folder.getRoot().toPath().resolve("cipher.txt");
+        Path recordingFile = folder.getRoot().toPath().resolve("recording.jfr");
+        Files.writeString(in, "Every secret creates a potential failure point");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("es.usj.crypto.FileIO").withoutThreshold();
+            recording.enable("es.usj.crypto.Cipher").withoutThreshold();
+            recording.start();
+            new FileCipher(readmeMachine()).cipher(in, out);
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("es.usj.crypto.FileIO")
+                && event.getString("operation").equals("write") && event.getLong("bytes") == 46));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("es.usj.crypto.Cipher")
+                && event.getLong("letters") == 40));
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package es.usj.crypto.enigma;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static es.usj.crypto.enigma.TestMachines.readmeMachine;
+import static org.junit.Assert.*;
+
+public class CompiledMachineTest {
+
+    @Test
+    public void basicUseCase() {
+        assertEquals("P", readmeMachine().compile().getCipheredText("A"));
+    }
+
+    @Test
+    public void sameOutputAsMachine() {
+        StringBuilder plainText = new StringBuilder();
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            plainText.append(random.nextInt(8) == 0 ? ' ' : Machine.ALPHABET.charAt(random.nextInt(26)));
+        }
+        Machine machine = readmeMachine();
+        CompiledMachine compiled = readmeMachine().compile();
+        assertEquals(machine.getCipheredText(plainText.toString()), compiled.getCipheredText(plainText.toString()));
+        // Rotor state is kept between calls
+        assertEquals(machine.getCipheredText("Hello world"), compiled.getCipheredText("Hello world"));
+    }
+
+    @Test
+    public void compileFromCurrentPosition() {
+        Machine machine = readmeMachine();
+        machine.getCipheredText("ABC");
+        CompiledMachine compiled = machine.compile();
+        assertEquals(machine.getCipheredText("DEFGHIJ"), compiled.getCipheredText("DEFGHIJ"));
+    }
+
+    @Test
+    public void wrongInputPlainText() {
+        Error error = assertThrows(AssertionError.class, () -> readmeMachine().compile().getCipheredText("Hello!"));
+        assertTrue(error.getMessage().contains("Plain text includes characters not in the ALPHABET or not considered as blank space"));
+    }
+
+}
@@ -0,0 +1,86 @@
+package es.usj.crypto.enigma;
+
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static es.usj.crypto.enigma.TestMachines.readmeMachine;
+import static org.junit.Assert.*;
+
+public class EnigmaKeyTest {
+
+    private static final String PLUGBOARD = "IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK";
+
+    private static EnigmaKey key() {
+        return new EnigmaKey(
+                new Plugboard(PLUGBOARD),
+                new Rotor(RotorConfiguration.ROTOR_I, 'F'),
+                new Rotor(RotorConfiguration.ROTOR_II, 'S'),
+                new Rotor(RotorConfiguration.ROTOR_III, 'E'),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+    }
+
+    @Test
+    public void sameOutputAsMachine() {
+        EnigmaCursor cursor = key().newCursor();
+        Machine machine = readmeMachine();
+        assertEquals("P", cursor.getCipheredText("A"));
+        machine.getCipheredText("A");
+        assertEquals(machine.getCipheredText("Every secret creates a potential failure point"),
+                cursor.getCipheredText("Every secret creates a potential failure point"));
+        assertEquals(41, cursor.getLetters());
+    }
+
+    @Test
+    public void encipherBytes() {
+        byte[] text = "Every secret\ncreates a potential failure point".getBytes(StandardCharsets.US_ASCII);
+        key().newCursor().encipher(text, 0, text.length);
+        assertEquals(readmeMachine().getCipheredText("Every secret\ncreates a potential failure point"),
+                new String(text, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void reset() {
+        EnigmaCursor cursor = key().newCursor();
+        String cipherText = cursor.getCipheredText("Hello world");
+        cursor.reset();
+        assertEquals(cipherText, cursor.getCipheredText("Hello world"));
+    }
+
+    @Test
+    public void concurrentCursors() {
+        StringBuilder plainText = new StringBuilder();
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            plainText.append(Machine.ALPHABET.charAt(random.nextInt(26)));
+        }
+        String expected = readmeMachine().getCipheredText(plainText.toString());
+
+        EnigmaKey key = key();
+        List<String> cipherTexts = IntStream.range(0, 16)
+                .parallel()
+                .mapToObj(i -> key.newCursor().getCipheredText(plainText.toString()))
+                .collect(Collectors.toList());
+        for (String cipherText : cipherTexts) {
+            assertEquals(expected, cipherText);
+        }
+    }
+
+    @Test
+    public void repeatedRotorConfiguration() {
+        Error error = assertThrows(AssertionError.class, () -> new EnigmaKey(
+                new Plugboard(PLUGBOARD),
+                new Rotor(RotorConfiguration.ROTOR_I, 'F'),
+                new Rotor(RotorConfiguration.ROTOR_II, 'S'),
+                new Rotor(RotorConfiguration.ROTOR_I, 'F'),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT)));
+        assertTrue(error.getMessage().contains("Each rotor configuration should be different"));
+    }
+
+}
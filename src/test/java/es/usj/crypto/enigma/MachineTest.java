@@ -4,6 +4,11 @@ import es.usj.crypto.enigma.constant.ReflectorConfiguration;
 import es.usj.crypto.enigma.constant.RotorConfiguration;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.Assert.*;
 
 public class MachineTest {
@@ -120,4 +125,157 @@ public class MachineTest {
                 new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
         assertEquals(machine1.getCipheredText("A B C").replaceAll(" ", ""), machine2.getCipheredText("ABC"));
     }
+
+    @Test
+    public void seek() {
+        // Initial positions at notch and before notch for right and middle rotors
+        String[] positions = {"ESF", "AMH", "QHG", "ZLM"};
+        for (String position : positions) {
+            Machine stepping = new Machine(
+                    new Plugboard("IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK"),
+                    new Rotor(RotorConfiguration.ROTOR_I, position.charAt(2)),
+                    new Rotor(RotorConfiguration.ROTOR_II, position.charAt(1)),
+                    new Rotor(RotorConfiguration.ROTOR_III, position.charAt(0)),
+                    new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+            Machine seeking = new Machine(
+                    new Plugboard("IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK"),
+                    new Rotor(RotorConfiguration.ROTOR_I, position.charAt(2)),
+                    new Rotor(RotorConfiguration.ROTOR_II, position.charAt(1)),
+                    new Rotor(RotorConfiguration.ROTOR_III, position.charAt(0)),
+                    new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+            assertEquals(position, seeking.stateAt(0));
+            for (int letters = 0; letters < 1500; letters++) {
+                String expected = stepping.getCipheredText("A");
+                seeking.seek(letters);
+                assertEquals("Seek to letter " + letters + " from " + position, expected, seeking.getCipheredText("A"));
+            }
+        }
+    }
+
+    @Test
+    public void seekIsPeriodic() {
+        Machine machine = new Machine(
+                new Plugboard("IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK"),
+                new Rotor(RotorConfiguration.ROTOR_I, 'F'),
+                new Rotor(RotorConfiguration.ROTOR_II, 'S'),
+                new Rotor(RotorConfiguration.ROTOR_III, 'E'),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+        assertEquals(machine.stateAt(123), machine.stateAt(123 + 676L * 1_000_000_000L));
+        String position = machine.stateAt(4_000_000_000L);
+        machine.getCipheredText("ABC");
+        assertEquals(position, machine.stateAt(4_000_000_000L));
+    }
+
+    @Test
+    public void parallelCipher() {
+        StringBuilder plainText = new StringBuilder();
+        Random random = new Random(5);
+        for (int i = 0; i < 200_000; i++) {
+            plainText.append(random.nextInt(7) == 0 ? ' ' : Machine.ALPHABET.charAt(random.nextInt(26)));
+        }
+        Machine sequential = new Machine(
+                new Plugboard("IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK"),
+                new Rotor(RotorConfiguration.ROTOR_I, 'F'),
+                new Rotor(RotorConfiguration.ROTOR_II, 'S'),
+                new Rotor(RotorConfiguration.ROTOR_III, 'E'),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+        Machine parallel = new Machine(
+                new Plugboard("IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK"),
+                new Rotor(RotorConfiguration.ROTOR_I, 'F'),
+                new Rotor(RotorConfiguration.ROTOR_II, 'S'),
+                new Rotor(RotorConfiguration.ROTOR_III, 'E'),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(sequential.getCipheredText("Hello"), parallel.getCipheredText("Hello", pool));
+            assertEquals(sequential.getCipheredText(plainText.toString()), parallel.getCipheredText(plainText.toString(), pool));
+            // Rotors position is updated after the parallel cipher
+            assertEquals(sequential.getCipheredText("Hello world"), parallel.getCipheredText("Hello world"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void encipherArrays() {
+        String plainText = "Hello this is a test\tto verify\r\nplain text";
+        String expected = newMachine().getCipheredText(plainText);
+
+        byte[] bytes = ("--" + plainText + "--").getBytes(StandardCharsets.US_ASCII);
+        newMachine().encipher(bytes, 2, bytes.length - 4);
+        assertEquals("--" + expected + "--", new String(bytes, StandardCharsets.US_ASCII));
+
+        char[] chars = plainText.toCharArray();
+        newMachine().encipher(chars, 0, chars.length);
+        assertEquals(expected, new String(chars));
+
+        ByteBuffer heap = ByteBuffer.wrap(plainText.getBytes(StandardCharsets.US_ASCII));
+        newMachine().encipher(heap);
+        assertFalse(heap.hasRemaining());
+        assertEquals(expected, new String(heap.array(), StandardCharsets.US_ASCII));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(plainText.length());
+        direct.put(plainText.getBytes(StandardCharsets.US_ASCII)).flip();
+        newMachine().encipher(direct);
+        byte[] output = new byte[plainText.length()];
+        direct.flip().get(output);
+        assertEquals(expected, new String(output, StandardCharsets.US_ASCII));
+
+        // Rotors position is updated after ciphering arrays
+        Machine machine = newMachine();
+        machine.encipher(plainText.getBytes(StandardCharsets.US_ASCII), 0, plainText.length());
+        Machine reference = newMachine();
+        reference.getCipheredText(plainText);
+        assertEquals(reference.getCipheredText("Hello world"), machine.getCipheredText("Hello world"));
+    }
+
+    @Test
+    public void encipherWrongInput() {
+        byte[] bytes = "Hello!".getBytes(StandardCharsets.US_ASCII);
+        Error error = assertThrows(AssertionError.class, () -> newMachine().encipher(bytes, 0, bytes.length));
+        assertTrue(error.getMessage().contains(
+                "Plain text includes characters not in the ALPHABET or not considered as blank space"));
+
+        byte[] utf8 = "Caf\u00e9".getBytes(StandardCharsets.UTF_8);
+        assertThrows(AssertionError.class, () -> newMachine().encipher(utf8, 0, utf8.length));
+        char[] chars = "[A]".toCharArray();
+        assertThrows(AssertionError.class, () -> newMachine().encipher(chars, 0, chars.length));
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            byte[] text = "Hello @".getBytes(StandardCharsets.US_ASCII);
+            assertThrows(AssertionError.class, () -> newMachine().encipher(text, 0, text.length, pool));
+            // Nothing is ciphered when the parallel input is rejected
+            assertEquals("Hello @", new String(text, StandardCharsets.US_ASCII));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelEncipher() {
+        byte[] plainText = new byte[100_000];
+        Random random = new Random(7);
+        for (int i = 0; i < plainText.length; i++) {
+            plainText[i] = (byte) (random.nextInt(7) == 0 ? '\n' : "abcdefghijklmnopqrstuvwxyz".charAt(random.nextInt(26)));
+        }
+        byte[] sequential = plainText.clone();
+        newMachine().encipher(sequential, 0, sequential.length);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            newMachine().encipher(plainText, 0, plainText.length, pool);
+            assertArrayEquals(sequential, plainText);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Machine newMachine() {
+        return new Machine(
+                new Plugboard("IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK"),
+                new Rotor(RotorConfiguration.ROTOR_I, 'F'),
+                new Rotor(RotorConfiguration.ROTOR_II, 'S'),
+                new Rotor(RotorConfiguration.ROTOR_III, 'E'),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+    }
 }
@@ -0,0 +1,60 @@
+package es.usj.crypto.enigma;
+
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MutableMachineTest {
+
+    // IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK
+    private static final int[] PLUGBOARD = {8, 17, 7, 16, 13, 19, 22, 25, 21, 2, 14, 24, 6, 15, 11, 5, 1, 23, 0, 10};
+
+    @Test
+    public void sameOutputAsMachine() {
+        MutableMachine machine = new MutableMachine(ReflectorConfiguration.REFLECTOR_DEFAULT);
+        machine.setKey(1, 2, 3, 'F', 'S', 'E', PLUGBOARD);
+        assertEquals("UNIUA CJHQIR INSCSWJ N JYZJEYRBC UWMPWQG NDVRY",
+                machine.getCipheredText("Every secret creates a potential failure point"));
+    }
+
+    @Test
+    public void rekey() {
+        MutableMachine machine = new MutableMachine(ReflectorConfiguration.REFLECTOR_DEFAULT);
+        machine.setKey(1, 2, 3, 'F', 'S', 'E', PLUGBOARD);
+        machine.getCipheredText("Hello");
+        machine.setKey(5, 4, 2, 'A', 'M', 'Z', new int[0]);
+        Machine expected = new Machine(
+                new Plugboard(""),
+                new Rotor(RotorConfiguration.ROTOR_V, 'A'),
+                new Rotor(RotorConfiguration.ROTOR_IV, 'M'),
+                new Rotor(RotorConfiguration.ROTOR_II, 'Z'),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+        String plainText = "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG";
+        assertEquals(expected.getCipheredText(plainText), machine.getCipheredText(plainText));
+    }
+
+    @Test
+    public void encipherIndexes() {
+        MutableMachine machine = new MutableMachine(ReflectorConfiguration.REFLECTOR_DEFAULT);
+        machine.setKey(1, 2, 3, 'F', 'S', 'E', PLUGBOARD);
+        byte[] letters = {0, 0, 0};
+        machine.encipher(letters, letters.length, letters);
+        machine.setKey(1, 2, 3, 'F', 'S', 'E', PLUGBOARD);
+        assertEquals(machine.getCipheredText("AAA"), new String(new char[] {
+                Machine.ALPHABET.charAt(letters[0]), Machine.ALPHABET.charAt(letters[1]), Machine.ALPHABET.charAt(letters[2])}));
+    }
+
+    @Test
+    public void validation() {
+        MutableMachine machine = new MutableMachine(ReflectorConfiguration.REFLECTOR_DEFAULT);
+        Exception error = assertThrows(IllegalArgumentException.class, () -> machine.setKey(1, 2, 1, 'F', 'S', 'E', PLUGBOARD));
+        assertTrue(error.getMessage().contains("Each rotor configuration should be different"));
+        error = assertThrows(IllegalArgumentException.class, () -> machine.setKey(1, 2, 3, 'F', 'S', 'E', new int[] {0, 1, 1, 2}));
+        assertTrue(error.getMessage().contains("Character B is expected to be 0 or 1 time"));
+        error = assertThrows(IllegalArgumentException.class, () -> machine.setKey(1, 2, 3, '*', 'S', 'E', PLUGBOARD));
+        assertTrue(error.getMessage().contains("Initial position should be A to Z"));
+    }
+
+}
@@ -3,6 +3,7 @@ package es.usj.crypto.enigma;
 import es.usj.crypto.enigma.constant.RotorConfiguration;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
@@ -25,4 +26,27 @@ public class RotorTest {
         assertTrue(actualMessage.contains(expectedMessage));
     }
 
+    @Test
+    public void forwardAndBackward() {
+        Rotor rotor = new Rotor(RotorConfiguration.ROTOR_I, 'F');
+        // Ring sequence FKQHTLXOCBJSPDZRAMEWNIUYGV rotated to start at F
+        assertEquals('F', rotor.forward('A'));
+        assertEquals('K', rotor.forward('B'));
+        assertEquals('A', rotor.backward('F'));
+        assertEquals(' ', rotor.forward(' '));
+        for (char c : Machine.ALPHABET.toCharArray()) {
+            assertEquals(c, rotor.backward(rotor.forward(c)));
+        }
+    }
+
+    @Test
+    public void rotation() {
+        Rotor rotor = new Rotor(RotorConfiguration.ROTOR_I, 'F');
+        // Rotation from FKQ..GV to VFKQ..G
+        rotor.update(null);
+        assertEquals('V', rotor.forward('A'));
+        assertEquals('F', rotor.forward('B'));
+        assertEquals('B', rotor.backward('F'));
+    }
+
 }
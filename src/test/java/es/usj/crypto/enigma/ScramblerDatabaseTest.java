@@ -0,0 +1,100 @@
+package es.usj.crypto.enigma;
+
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class ScramblerDatabaseTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeAndOpen() throws Exception {
+
+        Path file = folder.getRoot().toPath().resolve("scrambler.db");
+        ScramblerDatabase.write(file, ReflectorConfiguration.REFLECTOR_DEFAULT);
+        assertEquals(32 + 60L * ScramblerTable.STATES * 26, Files.size(file));
+
+        ScramblerDatabase database = ScramblerDatabase.open(file, ReflectorConfiguration.REFLECTOR_DEFAULT);
+        int[][] orders = {{1, 2, 3}, {3, 1, 2}, {5, 4, 3}};
+        for (int[] order : orders) {
+            ScramblerTable expected = ScramblerTable.of(
+                    RotorConfiguration.getRotorConfiguration(order[0]),
+                    RotorConfiguration.getRotorConfiguration(order[1]),
+                    RotorConfiguration.getRotorConfiguration(order[2]),
+                    ReflectorConfiguration.REFLECTOR_DEFAULT);
+            ScramblerTable table = database.table(order[0], order[1], order[2]);
+            assertEquals(expected.getPermutations(), table.getPermutations());
+            // Permutations are read from the mapped file, not copied to the heap
+            assertTrue(table.getPermutations().isDirect());
+            assertArrayEquals(expected.getNext(), table.getNext());
+            assertEquals(expected.positions(1234), table.positions(1234));
+            for (int state = 0; state < ScramblerTable.STATES; state += 97) {
+                for (int index = 0; index < 26; index++) {
+                    assertEquals(expected.substitute(state, index),
+                            database.substitute(order[0], order[1], order[2], state, index));
+                }
+            }
+        }
+
+        try {
+            database.table(1, 1, 2);
+            fail("Rotor order with a repeated rotor");
+        } catch (AssertionError e) {
+            assertEquals("Each rotor configuration should be different", e.getMessage());
+        }
+
+    }
+
+    @Test
+    public void invalidFile() throws Exception {
+
+        Path file = folder.getRoot().toPath().resolve("scrambler.db");
+        Files.write(file, new byte[64]);
+        try {
+            ScramblerDatabase.open(file, ReflectorConfiguration.REFLECTOR_DEFAULT);
+            fail("Empty file opened as a scrambler database");
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage().contains("is not a scrambler database"));
+        }
+
+        // Database built for other configurations
+        ScramblerDatabase.write(file, ReflectorConfiguration.REFLECTOR_DEFAULT);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer checksum = ByteBuffer.allocate(1);
+            channel.read(checksum, 31);
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) ~checksum.get(0)}), 31);
+        }
+        try {
+            ScramblerDatabase.open(file, ReflectorConfiguration.REFLECTOR_DEFAULT);
+            fail("Database opened with other configurations");
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage().contains("was built for other rotors or reflector"));
+        }
+
+        // Partial database
+        ScramblerDatabase.write(file, ReflectorConfiguration.REFLECTOR_DEFAULT);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(1024);
+        }
+        try {
+            ScramblerDatabase.open(file, ReflectorConfiguration.REFLECTOR_DEFAULT);
+            fail("Partial database opened");
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage().contains("size doesn't match the header"));
+        }
+
+    }
+
+}
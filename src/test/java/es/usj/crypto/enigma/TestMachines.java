@@ -0,0 +1,26 @@
+package es.usj.crypto.enigma;
+
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+
+/**
+ * Machines shared by the tests and benchmarks of several packages
+ */
+public final class TestMachines {
+
+    private TestMachines() {
+    }
+
+    /**
+     * @return New Machine with the configuration used in README
+     */
+    public static Machine readmeMachine() {
+        return new Machine(
+                new Plugboard("IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK"),
+                new Rotor(RotorConfiguration.ROTOR_I, 'F'),
+                new Rotor(RotorConfiguration.ROTOR_II, 'S'),
+                new Rotor(RotorConfiguration.ROTOR_III, 'E'),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+    }
+
+}
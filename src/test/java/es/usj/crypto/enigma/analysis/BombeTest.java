@@ -0,0 +1,46 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class BombeTest {
+
+    @Test
+    public void wrongCribOffset() {
+        // A is never ciphered into A
+        Error error = assertThrows(AssertionError.class, () -> new Menu(new byte[] {1, 0, 2}, new byte[] {0}, 1));
+        assertTrue(error.getMessage().contains("Crib can't be placed at offset 1"));
+    }
+
+    @Test
+    public void findKeyFromCrib() {
+
+        String plugboard = "AK:BX:GP:HQ:IR:LF:NT:OY:VC:WZ";
+        String cipherText = KeySearchTest.machine(plugboard).getCipheredText(KeySearchTest.PLAIN_TEXT);
+        // Letters 3 to 32 of the plain text
+        String crib = "MACHINEWASUSEDBYTHEARMEDFORCES";
+
+        List<BombeStop> stops = new Bombe(ReflectorConfiguration.REFLECTOR_DEFAULT, ForkJoinPool.commonPool())
+                .run(cipherText, crib, 3);
+
+        BombeStop stop = stops.stream()
+                .filter(s -> s.getKey().getRightRotor() == 4 && s.getKey().getMiddleRotor() == 2 &&
+                        s.getKey().getLeftRotor() == 5 && s.getKey().getPositions().equals("DHQ"))
+                .findFirst()
+                .orElseThrow();
+        List<String> pairings = Arrays.asList(plugboard.split(":"));
+        for (String pairing : stop.getPlugboard().split(":")) {
+            String reversed = new StringBuilder(pairing).reverse().toString();
+            assertTrue(pairing + " should be part of the plugboard", pairings.contains(pairing) || pairings.contains(reversed));
+        }
+        assertTrue("Only a few stops expected, not " + stops.size(), stops.size() < 100);
+
+    }
+
+}
@@ -0,0 +1,138 @@
+package es.usj.crypto.enigma.analysis;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class CribDraggerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final List<String> CRIBS = List.of(
+            "MACHINE WAS USED BY THE ARMED FORCES",
+            "WETTERVORHERSAGE",
+            "KEINE BESONDEREN EREIGNISSE",
+            "X",
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZABCDEFGHIJKLMNOPQRSTUVWXYZABCDEFGHIJKL");
+
+    @Test
+    public void dragMatchesNestedLoop() {
+
+        String cipherText = KeySearchTest.machine("AK:BX:GP:HQ:IR:LF:NT:OY:VC:WZ")
+                .getCipheredText(KeySearchTest.PLAIN_TEXT);
+        long[][] offsets = new CribDragger(CRIBS, ForkJoinPool.commonPool()).drag(cipherText);
+
+        byte[] letters = Letters.toIndexes(cipherText);
+        for (int crib = 0; crib < CRIBS.size(); crib++) {
+            assertArrayEquals(CRIBS.get(crib), nestedLoop(letters, Letters.toIndexes(CRIBS.get(crib))), offsets[crib]);
+        }
+
+        // The crib is found where it was ciphered
+        String plainText = KeySearchTest.PLAIN_TEXT.replace(" ", "").toUpperCase();
+        int offset = plainText.indexOf("MACHINEWASUSEDBYTHEARMEDFORCES");
+        assertTrue(offset >= 0);
+        assertTrue(Arrays.binarySearch(offsets[0], offset) >= 0);
+
+    }
+
+    @Test
+    public void dragFilesInSegments() throws Exception {
+
+        // Random groups of letters in lower and upper case with line feeds
+        Random random = new Random(1);
+        List<Path> files = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        for (int f = 0; f < 3; f++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 20000 + f * 777; i++) {
+                char letter = (char) ('A' + random.nextInt(26));
+                text.append(random.nextBoolean() ? letter : Character.toLowerCase(letter));
+                if (i % 5 == 4) {
+                    text.append(i % 60 == 59 ? "\r\n" : " ");
+                }
+            }
+            Path file = folder.getRoot().toPath().resolve("intercept" + f + ".txt");
+            Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+            files.add(file);
+            texts.add(text.toString());
+        }
+
+        CribDragger single = new CribDragger(CRIBS, ForkJoinPool.commonPool());
+        ForkJoinPool pool = new ForkJoinPool(3);
+        for (long segmentSize : new long[] {1, 1000, 4093, CribDragger.DEFAULT_SEGMENT_SIZE}) {
+
+            ConcurrentHashMap<String, List<Long>> found = new ConcurrentHashMap<>();
+            new CribDragger(CRIBS, pool, segmentSize).drag(files, (file, crib, offsets, count) -> {
+                List<Long> list = found.computeIfAbsent(file.getFileName() + ":" + crib,
+                        key -> new ArrayList<>());
+                synchronized (list) {
+                    for (int i = 0; i < count; i++) {
+                        list.add(offsets[i]);
+                    }
+                }
+            });
+
+            for (int f = 0; f < files.size(); f++) {
+                long[][] expected = single.drag(texts.get(f));
+                for (int crib = 0; crib < CRIBS.size(); crib++) {
+                    long[] offsets = found.getOrDefault(files.get(f).getFileName() + ":" + crib, List.of())
+                            .stream().mapToLong(Long::longValue).sorted().toArray();
+                    assertArrayEquals("Segment size " + segmentSize, expected[crib], offsets);
+                }
+            }
+
+        }
+        pool.shutdown();
+
+    }
+
+    @Test
+    public void invalidCribsAndCipherTexts() throws Exception {
+
+        try {
+            new CribDragger(List.of(CRIBS.get(4) + "M"), ForkJoinPool.commonPool());
+            fail("Crib too long");
+        } catch (AssertionError e) {
+            assertEquals("Crib should include 1 to 64 letters", e.getMessage());
+        }
+
+        Path file = folder.getRoot().toPath().resolve("intercept.txt");
+        Files.writeString(file, "ABCDE FGHIJ KLMN1 OPQRS");
+        try {
+            new CribDragger(CRIBS, ForkJoinPool.commonPool()).drag(List.of(file), (f, crib, offsets, count) -> {
+            });
+            fail("Cipher text with digits");
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage().contains("includes characters not in the ALPHABET"));
+        }
+
+    }
+
+    private static long[] nestedLoop(byte[] cipher, byte[] crib) {
+        List<Long> offsets = new ArrayList<>();
+        for (int offset = 0; offset + crib.length <= cipher.length; offset++) {
+            boolean fits = true;
+            for (int i = 0; i < crib.length && fits; i++) {
+                fits = cipher[offset + i] != crib[i];
+            }
+            if (fits) {
+                offsets.add((long) offset);
+            }
+        }
+        return offsets.stream().mapToLong(Long::longValue).toArray();
+    }
+
+}
@@ -0,0 +1,58 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.Machine;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class CycleCatalogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lookupDoubledIndicators() throws Exception {
+
+        // Every message key typed twice from the same initial positions, plugboard doesn't change the cycles
+        char[] ad = new char[26];
+        char[] be = new char[26];
+        char[] cf = new char[26];
+        for (char c = 'A'; c <= 'Z'; c++) {
+            Machine machine = KeySearchTest.machine("AK:BX:GP:HQ:IR:LF:NT:OY:VC:WZ");
+            String indicator = machine.getCipheredText(String.valueOf(c).repeat(6));
+            ad[indicator.charAt(0) - 'A'] = indicator.charAt(3);
+            be[indicator.charAt(1) - 'A'] = indicator.charAt(4);
+            cf[indicator.charAt(2) - 'A'] = indicator.charAt(5);
+        }
+
+        CycleCatalog catalog = CycleCatalog.generate(ReflectorConfiguration.REFLECTOR_DEFAULT, ForkJoinPool.commonPool());
+        assertEquals(60 * 17576, catalog.size());
+        List<KeyCandidate> candidates = catalog.lookup(new String(ad), new String(be), new String(cf));
+        assertTrue(candidates.stream().anyMatch(candidate ->
+                candidate.getRightRotor() == 4 && candidate.getMiddleRotor() == 2 && candidate.getLeftRotor() == 5 &&
+                candidate.getPositions().equals("DHQ")));
+
+        Path file = folder.getRoot().toPath().resolve("cycles.catalog");
+        catalog.save(file);
+        CycleCatalog loaded = CycleCatalog.load(file);
+        assertEquals(catalog.size(), loaded.size());
+        assertEquals(candidates.toString(), loaded.lookup(new String(ad), new String(be), new String(cf)).toString());
+
+
+        try {
+            catalog.lookup("BACDEFGHIJKLMNOPQRSTUVWXYZ", new String(be), new String(cf));
+            fail("Permutation with unpaired cycles");
+        } catch (AssertionError e) {
+            assertEquals("Cycles of the composed permutation should come in pairs of the same length", e.getMessage());
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.Machine;
+import es.usj.crypto.enigma.Plugboard;
+import es.usj.crypto.enigma.Reflector;
+import es.usj.crypto.enigma.Rotor;
+import es.usj.crypto.enigma.ScramblerDatabase;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class KeySearchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static final String PLAIN_TEXT =
+            "The machine was used by the armed forces to send messages that were believed to be secure " +
+            "because the number of possible settings was so large that trying every one of them by hand " +
+            "would take far longer than the messages would remain useful to anybody reading them later " +
+            "The operators changed the settings every day following a printed list that was kept secret " +
+            "and the messages were sent by radio so that anyone listening could copy the cipher text " +
+            "Breaking the cipher required a mixture of mathematics mechanical aids and the mistakes of " +
+            "the operators themselves who often repeated the same words at the start of every message";
+
+    static Machine machine(String plugboard) {
+        return new Machine(
+                new Plugboard(plugboard),
+                new Rotor(RotorConfiguration.ROTOR_IV, 'Q'),
+                new Rotor(RotorConfiguration.ROTOR_II, 'H'),
+                new Rotor(RotorConfiguration.ROTOR_V, 'D'),
+                new Reflector(ReflectorConfiguration.REFLECTOR_DEFAULT));
+    }
+
+    @Test
+    public void sameCharactersAsMachine() {
+        assertArrayEquals(new byte[] {0, 1, 25}, Letters.toIndexes("a B\tz\r\n"));
+        // Characters Java considers white space but Machine doesn't
+        for (String text : new String[] {"A\u001CB", "A\u2003B"}) {
+            assertThrows(AssertionError.class, () -> Letters.toIndexes(text));
+            assertThrows(AssertionError.class, () -> KeySearchTest.machine("").getCipheredText(text));
+        }
+    }
+
+    @Test
+    public void rotorOrders() {
+        assertEquals(60, KeySearch.rotorOrders().size());
+    }
+
+    @Test
+    public void searchWithEmptyPlugboard() {
+
+        String cipherText = machine("").getCipheredText(PLAIN_TEXT);
+
+        List<KeyCandidate> candidates = new KeySearch(ReflectorConfiguration.REFLECTOR_DEFAULT, ForkJoinPool.commonPool())
+                .search(cipherText, 5);
+
+        assertEquals(5, candidates.size());
+        KeyCandidate best = candidates.get(0);
+        assertEquals(4, best.getRightRotor());
+        assertEquals(2, best.getMiddleRotor());
+        assertEquals(5, best.getLeftRotor());
+        assertEquals("DHQ", best.getPositions());
+        assertTrue(best.getScore() >= candidates.get(1).getScore());
+        assertEquals(PLAIN_TEXT.toUpperCase(),
+                best.toMachine(new Plugboard(""), ReflectorConfiguration.REFLECTOR_DEFAULT).getCipheredText(cipherText));
+
+    }
+
+    @Test
+    public void searchWithDatabase() throws Exception {
+
+        Path file = folder.getRoot().toPath().resolve("scrambler.db");
+        ScramblerDatabase.write(file, ReflectorConfiguration.REFLECTOR_DEFAULT);
+        String cipherText = machine("").getCipheredText(PLAIN_TEXT);
+
+        KeySearch search = new KeySearch(ReflectorConfiguration.REFLECTOR_DEFAULT, ForkJoinPool.commonPool());
+        List<KeyCandidate> expected = search.search(cipherText, 5);
+        search.setDatabase(ScramblerDatabase.open(file, ReflectorConfiguration.REFLECTOR_DEFAULT));
+        List<KeyCandidate> candidates = search.search(cipherText, 5);
+
+        assertEquals(expected.size(), candidates.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), candidates.get(i).toString());
+        }
+
+    }
+
+}
@@ -0,0 +1,62 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.ScramblerTable;
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import es.usj.crypto.enigma.constant.RotorConfiguration;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LaneEvaluatorTest {
+
+    @Test
+    public void sameCountsAsSingleKey() {
+
+        ScramblerTable table = ScramblerTable.of(
+                RotorConfiguration.ROTOR_III, RotorConfiguration.ROTOR_I, RotorConfiguration.ROTOR_V,
+                ReflectorConfiguration.REFLECTOR_DEFAULT);
+        LaneEvaluator evaluator = new LaneEvaluator(new LaneEvaluator.Table(table));
+
+        Random random = new Random(13);
+        byte[] letters = new byte[300];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (byte) random.nextInt(26);
+        }
+
+        // Complete groups of 8 lanes, incomplete last group and a single lane
+        for (int lanes : new int[] {LaneEvaluator.MAX_LANES, 13, 1}) {
+            int[] states = new int[lanes];
+            for (int lane = 0; lane < lanes; lane++) {
+                states[lane] = random.nextInt(ScramblerTable.STATES);
+            }
+            evaluator.evaluate(letters, states, lanes);
+
+            for (int lane = 0; lane < lanes; lane++) {
+                int[] counts = new int[26];
+                int state = states[lane];
+                for (byte letter : letters) {
+                    state = table.next(state);
+                    counts[table.substitute(state, letter)]++;
+                }
+                long coincidences = 0;
+                for (int letter = 0; letter < 26; letter++) {
+                    assertEquals(counts[letter], evaluator.count(lane, letter));
+                    coincidences += (long) counts[letter] * (counts[letter] - 1);
+                }
+                assertEquals(coincidences / (300.0 * 299.0), evaluator.indexOfCoincidence(lane), 1e-12);
+            }
+        }
+
+    }
+
+    @Test
+    public void wrongNumberOfLanes() {
+        LaneEvaluator evaluator = new LaneEvaluator(new LaneEvaluator.Table(ScramblerTable.of(
+                RotorConfiguration.ROTOR_III, RotorConfiguration.ROTOR_I, RotorConfiguration.ROTOR_V,
+                ReflectorConfiguration.REFLECTOR_DEFAULT)));
+        assertThrows(AssertionError.class, () -> evaluator.evaluate(new byte[10], new int[65], 65));
+    }
+
+}
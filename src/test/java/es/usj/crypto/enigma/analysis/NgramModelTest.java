@@ -0,0 +1,54 @@
+package es.usj.crypto.enigma.analysis;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class NgramModelTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saveAndLoad() throws Exception {
+
+        NgramModel model = NgramModel.train(PlugboardSolverTest.CORPUS, 4);
+        Path file = folder.getRoot().toPath().resolve("english.ngrams");
+        model.save(file);
+        assertEquals(16 + 4 * 26 * 26 * 26 * 26, Files.size(file));
+
+        NgramModel loaded = NgramModel.load(file);
+        assertEquals(4, loaded.getOrder());
+        for (int code = 0; code < 26 * 26 * 26 * 26; code++) {
+            assertEquals(model.logProbability(code), loaded.logProbability(code), 0);
+        }
+        byte[] letters = Letters.lettersOf(KeySearchTest.PLAIN_TEXT);
+        assertEquals(model.score(letters, letters.length), loaded.score(letters, letters.length), 0);
+
+        // Replacing the file doesn't change the model already mapped
+        NgramModel.train(PlugboardSolverTest.CORPUS, 2).save(file);
+        assertEquals(2, NgramModel.load(file).getOrder());
+        assertEquals(model.score(letters, letters.length), loaded.score(letters, letters.length), 0);
+
+    }
+
+    @Test
+    public void invalidFile() throws Exception {
+
+        Path file = folder.newFile("corpus.txt").toPath();
+        Files.writeString(file, PlugboardSolverTest.CORPUS);
+        try {
+            NgramModel.load(file);
+            fail("Text file loaded as an n-gram model");
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage().contains("is not an n-gram model"));
+        }
+
+    }
+
+}
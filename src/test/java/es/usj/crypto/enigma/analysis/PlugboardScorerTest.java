@@ -0,0 +1,76 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class PlugboardScorerTest {
+
+    @Test
+    public void updateMatchesFullScore() {
+
+        NgramModel model = NgramModel.train(PlugboardSolverTest.CORPUS, 3);
+        String cipherText = KeySearchTest.machine("AK:BX:GP:HQ:IR:LF:NT:OY:VC:WZ")
+                .getCipheredText(KeySearchTest.PLAIN_TEXT);
+        byte[] letters = Letters.toIndexes(cipherText);
+        byte[] substitutions = new PlugboardSolver(model, ReflectorConfiguration.REFLECTOR_DEFAULT,
+                ForkJoinPool.commonPool()).substitutions(letters, new KeyCandidate(4, 2, 5, "DHQ", 0));
+
+        PlugboardScorer scorer = new PlugboardScorer(model, letters, substitutions);
+        int[] plugboard = new int[26];
+        for (int i = 0; i < 26; i++) {
+            plugboard[i] = i;
+        }
+        assertEquals(full(model, letters, substitutions, plugboard), scorer.getScore(), 1e-6);
+
+        // Swap the plugs of two letters at a time, as the hill climbing does
+        Random random = new Random(1);
+        byte[] plainText = new byte[letters.length];
+        for (int move = 0; move < 500; move++) {
+
+            int a = random.nextInt(26);
+            int b = random.nextInt(26);
+            int x = plugboard[a];
+            int y = plugboard[b];
+            plugboard[a] = a;
+            plugboard[x] = x;
+            plugboard[b] = b;
+            plugboard[y] = y;
+            if (a != b && x != b) {
+                plugboard[a] = b;
+                plugboard[b] = a;
+            }
+
+            double full = full(model, letters, substitutions, plugboard);
+            assertEquals(full, scorer.evaluate(plugboard), 1e-6);
+            assertEquals(full, scorer.update(plugboard), 1e-6);
+
+            int[] counts = new int[26];
+            for (int i = 0; i < letters.length; i++) {
+                plainText[i] = (byte) plugboard[substitutions[i * 26 + plugboard[letters[i]]]];
+                counts[plainText[i]]++;
+            }
+            assertArrayEquals(plainText, scorer.getPlainText());
+            double sum = 0;
+            for (int count : counts) {
+                sum += (double) count * (count - 1);
+            }
+            assertEquals(sum / ((double) letters.length * (letters.length - 1)), scorer.indexOfCoincidence(), 1e-12);
+
+        }
+
+    }
+
+    private static double full(NgramModel model, byte[] letters, byte[] substitutions, int[] plugboard) {
+        byte[] plainText = new byte[letters.length];
+        for (int i = 0; i < letters.length; i++) {
+            plainText[i] = (byte) plugboard[substitutions[i * 26 + plugboard[letters[i]]]];
+        }
+        return model.score(plainText, plainText.length);
+    }
+
+}
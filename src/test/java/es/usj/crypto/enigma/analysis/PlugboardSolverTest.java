@@ -0,0 +1,67 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class PlugboardSolverTest {
+
+    // Training text sharing no sentence with the messages deciphered by the tests
+    static final String CORPUS =
+            "It was the best of times it was the worst of times it was the age of wisdom it was the age of " +
+            "foolishness it was the epoch of belief it was the epoch of incredulity it was the season of light " +
+            "it was the season of darkness it was the spring of hope it was the winter of despair we had " +
+            "everything before us we had nothing before us we were all going direct to heaven we were all " +
+            "going direct the other way in short the period was so far like the present period that some of " +
+            "its noisiest authorities insisted on its being received for good or for evil in the superlative " +
+            "degree of comparison only There were a king with a large jaw and a queen with a plain face on the " +
+            "throne of England there were a king with a large jaw and a queen with a fair face on the throne " +
+            "of France In both countries it was clearer than crystal to the lords of the State preserves of " +
+            "loaves and fishes that things in general were settled for ever " +
+            "Call me Ishmael Some years ago never mind how long precisely having little or no money in my " +
+            "purse and nothing particular to interest me on shore I thought I would sail about a little and " +
+            "see the watery part of the world It is a way I have of driving off the spleen and regulating the " +
+            "circulation Whenever I find myself growing grim about the mouth whenever it is a damp drizzly " +
+            "November in my soul whenever I find myself involuntarily pausing before coffin warehouses and " +
+            "bringing up the rear of every funeral I meet then I account it high time to get to sea as soon " +
+            "as I can This is my substitute for pistol and ball " +
+            "It is a truth universally acknowledged that a single man in possession of a good fortune must be " +
+            "in want of a wife However little known the feelings or views of such a man may be on his first " +
+            "entering a neighbourhood this truth is so well fixed in the minds of the surrounding families " +
+            "that he is considered the rightful property of some one or other of their daughters " +
+            "In my younger and more vulnerable years my father gave me some advice that I have been turning " +
+            "over in my mind ever since Whenever you feel like criticizing anyone he told me just remember " +
+            "that all the people in this world have not had the advantages that you have had " +
+            "The station master came out of his office with a lantern and looked along the platform where " +
+            "the last train of the evening was waiting for the signal to change The passengers had gone to " +
+            "sleep in their seats and only a boy with a bundle of newspapers was still walking between the " +
+            "carriages calling out the headlines about the weather the harvest and the price of coal";
+
+    @Test
+    public void trainModel() {
+        NgramModel model = NgramModel.train(CORPUS, 2);
+        assertEquals(2, model.getOrder());
+        // TH is more frequent than QZ
+        assertTrue(model.logProbability(19 * 26 + 7) > model.logProbability(16 * 26 + 25));
+    }
+
+    @Test
+    public void solve() {
+
+        String plugboard = "AK:BX:GP:HQ:IR:LF:NT:OY:VC:WZ";
+        String cipherText = KeySearchTest.machine(plugboard).getCipheredText(KeySearchTest.PLAIN_TEXT);
+        KeyCandidate key = new KeyCandidate(4, 2, 5, "DHQ", 0);
+
+        PlugboardSolution solution = new PlugboardSolver(NgramModel.train(CORPUS, 3),
+                ReflectorConfiguration.REFLECTOR_DEFAULT, ForkJoinPool.commonPool())
+                .solve(cipherText, key, 8, 1);
+
+        assertEquals("AK:BX:CV:FL:GP:HQ:IR:NT:OY:WZ", solution.getPlugboard());
+        assertEquals(10, solution.getPairings());
+
+    }
+
+}
@@ -0,0 +1,92 @@
+package es.usj.crypto.enigma.analysis;
+
+import es.usj.crypto.enigma.constant.ReflectorConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ShardedSearchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resumeAndMerge() throws Exception {
+
+        Path directory = folder.getRoot().toPath().resolve("search");
+        String cipherText = KeySearchTest.machine("").getCipheredText(KeySearchTest.PLAIN_TEXT);
+        ShardedSearch search = ShardedSearch.create(directory, cipherText, 5, 2);
+        assertEquals(120, search.getShards());
+
+        // Shard 0 was abandoned by a stopped worker and shard 1 is being searched by another worker
+        Files.writeString(directory.resolve("0000.claim"), "stopped:1");
+        Files.setLastModifiedTime(directory.resolve("0000.claim"),
+                FileTime.fromMillis(System.currentTimeMillis() - 2 * ShardedSearch.DEFAULT_LEASE_MILLIS));
+        Files.writeString(directory.resolve("0001.claim"), "running:2");
+
+        assertEquals(119, search.work(ReflectorConfiguration.REFLECTOR_DEFAULT, ForkJoinPool.commonPool()));
+        assertFalse(search.isComplete());
+        assertEquals(119, search.completedShards());
+
+        // Running again after the other worker is gone, only the missing shard is searched
+        ShardedSearch resumed = ShardedSearch.create(directory, cipherText, 5, 2);
+        resumed.setLeaseMillis(0);
+        Thread.sleep(10);
+        assertEquals(1, resumed.work(ReflectorConfiguration.REFLECTOR_DEFAULT, ForkJoinPool.commonPool()));
+        assertTrue(resumed.isComplete());
+        assertEquals(0, resumed.work(ReflectorConfiguration.REFLECTOR_DEFAULT, ForkJoinPool.commonPool()));
+
+        List<KeyCandidate> candidates = resumed.merge();
+        assertEquals(5, candidates.size());
+        assertEquals(4, candidates.get(0).getRightRotor());
+        assertEquals(2, candidates.get(0).getMiddleRotor());
+        assertEquals(5, candidates.get(0).getLeftRotor());
+        assertEquals("DHQ", candidates.get(0).getPositions());
+
+        // Same candidates than a search in a single process
+        List<KeyCandidate> expected = new KeySearch(ReflectorConfiguration.REFLECTOR_DEFAULT, ForkJoinPool.commonPool())
+                .search(cipherText, 5);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getScore(), candidates.get(i).getScore(), 0.0);
+        }
+
+    }
+
+    @Test
+    public void solvePlugboardsOfEveryShard() throws Exception {
+
+        Path directory = folder.getRoot().toPath().resolve("search");
+        String cipherText = KeySearchTest.machine("").getCipheredText(KeySearchTest.PLAIN_TEXT);
+        ShardedSearch search = ShardedSearch.create(directory, cipherText, 3, 1,
+                NgramModel.train(PlugboardSolverTest.CORPUS, 3), 2);
+        assertEquals(60, search.work(ReflectorConfiguration.REFLECTOR_DEFAULT, ForkJoinPool.commonPool()));
+
+        // Every result includes the plugboard solved by the shard
+        for (String line : Files.readAllLines(directory.resolve("0000.result"))) {
+            assertEquals(7, line.split(",").length);
+        }
+
+        List<PlugboardSolution> solutions = ShardedSearch.open(directory).mergeSolutions();
+        assertEquals(3, solutions.size());
+        assertEquals("DHQ", solutions.get(0).getKey().getPositions());
+        assertEquals("", solutions.get(0).getPlugboard());
+
+    }
+
+    @Test
+    public void differentSearchInDirectory() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        ShardedSearch.create(directory, "ABCDEFGHIJ", 5, 1);
+        Error error = assertThrows(AssertionError.class, () -> ShardedSearch.create(directory, "ABCDEFGHIK", 5, 1));
+        assertTrue(error.getMessage().contains("includes a search for a different cipher text"));
+    }
+
+}
@@ -0,0 +1,127 @@
+package es.usj.crypto.enigma.io;
+
+import es.usj.crypto.enigma.Machine;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static es.usj.crypto.enigma.TestMachines.readmeMachine;
+import static org.junit.Assert.*;
+
+public class EnigmaStreamsTest {
+
+    private static final String PLAIN_TEXT = plainText();
+
+    @Test
+    public void outputStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] plain = PLAIN_TEXT.getBytes(StandardCharsets.US_ASCII);
+        try (OutputStream out = new EnigmaOutputStream(bytes, readmeMachine())) {
+            out.write(plain[0]);
+            out.write(plain, 1, plain.length - 1);
+        }
+        assertEquals(cipherText(), bytes.toString(StandardCharsets.US_ASCII));
+        // Caller array is not modified
+        assertEquals(PLAIN_TEXT, new String(plain, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void inputStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = new EnigmaInputStream(
+                new ByteArrayInputStream(PLAIN_TEXT.getBytes(StandardCharsets.US_ASCII)), readmeMachine())) {
+            bytes.write(in.read());
+            assertEquals(0, in.skip(-1));
+            assertEquals(0, in.skip(0));
+            assertEquals(10, in.skip(10));
+            in.transferTo(bytes);
+        }
+        String expected = cipherText();
+        assertEquals(expected.charAt(0) + expected.substring(11), bytes.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void writer() throws IOException {
+        StringWriter chars = new StringWriter();
+        try (Writer out = new EnigmaWriter(chars, readmeMachine())) {
+            out.write(PLAIN_TEXT.charAt(0));
+            out.write(PLAIN_TEXT, 1, PLAIN_TEXT.length() - 1);
+        }
+        assertEquals(cipherText(), chars.toString());
+    }
+
+    @Test
+    public void reader() throws IOException {
+        StringWriter chars = new StringWriter();
+        try (Reader in = new EnigmaReader(new StringReader(PLAIN_TEXT), readmeMachine())) {
+            chars.write(in.read());
+            assertThrows(IllegalArgumentException.class, () -> in.skip(-1));
+            assertEquals(0, in.skip(0));
+            assertEquals(10, in.skip(10));
+            in.transferTo(chars);
+        }
+        String expected = cipherText();
+        assertEquals(expected.charAt(0) + expected.substring(11), chars.toString());
+    }
+
+    @Test
+    public void channel() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteBuffer plain = ByteBuffer.wrap(PLAIN_TEXT.getBytes(StandardCharsets.US_ASCII));
+        try (WritableByteChannel channel = new EnigmaChannel(Channels.newChannel(bytes), readmeMachine())) {
+            assertEquals(PLAIN_TEXT.length(), channel.write(plain));
+        }
+        assertFalse(plain.hasRemaining());
+        assertEquals(cipherText(), bytes.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void nonBlockingChannel() throws IOException {
+        Pipe pipe = Pipe.open();
+        pipe.sink().configureBlocking(false);
+        try (WritableByteChannel channel = new EnigmaChannel(pipe.sink(), readmeMachine())) {
+            assertThrows(IllegalBlockingModeException.class,
+                    () -> channel.write(ByteBuffer.wrap(PLAIN_TEXT.getBytes(StandardCharsets.US_ASCII))));
+        } finally {
+            pipe.source().close();
+        }
+    }
+
+    @Test
+    public void wrongInput() {
+        OutputStream out = new EnigmaOutputStream(new ByteArrayOutputStream(), readmeMachine());
+        Error error = assertThrows(AssertionError.class, () -> out.write("Hello!".getBytes(StandardCharsets.US_ASCII)));
+        assertTrue(error.getMessage().contains(
+                "Plain text includes characters not in the ALPHABET or not considered as blank space"));
+    }
+
+    private static String cipherText() {
+        return readmeMachine().getCipheredText(PLAIN_TEXT);
+    }
+
+    // Text longer than the internal buffers
+    private static String plainText() {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            text.append(random.nextInt(6) == 0 ? ' ' : Machine.ALPHABET.charAt(random.nextInt(26)));
+        }
+        return text.toString();
+    }
+
+}
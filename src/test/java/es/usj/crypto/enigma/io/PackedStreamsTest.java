@@ -0,0 +1,123 @@
+package es.usj.crypto.enigma.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PackedStreamsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void packAndUnpack() throws IOException {
+
+        // Lower case letters, every kind of blank, consecutive blanks and long runs of letters
+        StringBuilder text = new StringBuilder("\n\nStarts with blanks  and\tends\r\nwith them \u000B\f");
+        Random random = new Random(5);
+        for (int i = 0; i < 20000; i++) {
+            text.append(random.nextInt(300) == 0 ? ' ' : (char) ('a' + random.nextInt(26)));
+        }
+        text.append("\nEND");
+        byte[] plain = text.toString().getBytes(StandardCharsets.US_ASCII);
+
+        Path file = folder.getRoot().toPath().resolve("text.packed");
+        try (OutputStream out = new PackedOutputStream(open(file))) {
+            out.write(plain[0]);
+            out.write(plain, 1, plain.length - 1);
+        }
+        assertTrue(Files.size(file) < plain.length * 5 / 8 + 200);
+
+        try (InputStream in = new PackedInputStream(FileChannel.open(file, StandardOpenOption.READ))) {
+            assertEquals(text.toString().toUpperCase(), new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+            assertEquals(-1, in.read());
+        }
+
+    }
+
+    @Test
+    public void groupedCipherText() throws IOException {
+
+        // Groups of five letters take 33 bits instead of 48, with more blanks than the buffer so they are spilled
+        String text = "UNIUA CJHQI RINSC SWJNJ YZJEY RBCUW ".repeat(3000);
+        Path file = folder.getRoot().toPath().resolve("groups.packed");
+        try (OutputStream out = new PackedOutputStream(open(file))) {
+            out.write(text.getBytes(StandardCharsets.US_ASCII));
+        }
+        assertEquals(36 + 18000 * 33 / 8, Files.size(file));
+
+        try (InputStream in = new PackedInputStream(FileChannel.open(file, StandardOpenOption.READ))) {
+            assertEquals(text, new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+        }
+
+    }
+
+    @Test
+    public void corruptedFile() throws IOException {
+
+        Path file = folder.getRoot().toPath().resolve("text.packed");
+        try (OutputStream out = new PackedOutputStream(open(file))) {
+            out.write("ATTACK AT DAWN".getBytes(StandardCharsets.US_ASCII));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // Replace the first packed letter with a different valid letter
+            channel.write(ByteBuffer.wrap(new byte[] {0x08}), 36);
+        }
+        try (InputStream in = new PackedInputStream(FileChannel.open(file, StandardOpenOption.READ))) {
+            in.readAllBytes();
+            fail("Corrupted file read");
+        } catch (IOException e) {
+            assertEquals("Packed text checksum doesn't match", e.getMessage());
+        }
+
+        Files.writeString(file, "ATTACK AT DAWN");
+        try {
+            new PackedInputStream(FileChannel.open(file, StandardOpenOption.READ));
+            fail("Text file read as packed");
+        } catch (IOException e) {
+            assertEquals("Not a packed text", e.getMessage());
+        }
+
+    }
+
+    @Test
+    public void invalidCharacter() throws IOException {
+
+        // The header is not written after a failed write, so the text written before is not readable
+        Path file = folder.getRoot().toPath().resolve("text.packed");
+        try (OutputStream out = new PackedOutputStream(open(file))) {
+            out.write("ATTACK AT DAWN ".getBytes(StandardCharsets.US_ASCII));
+            out.write("ATTACK AT 5".getBytes(StandardCharsets.US_ASCII));
+            fail("Invalid character written");
+        } catch (AssertionError e) {
+            assertEquals("Plain text includes characters not in the ALPHABET or not considered as blank space",
+                    e.getMessage());
+        }
+        try {
+            new PackedInputStream(FileChannel.open(file, StandardOpenOption.READ));
+            fail("Failed file read");
+        } catch (IOException e) {
+            assertEquals("Not a packed text", e.getMessage());
+        }
+
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+}
@@ -0,0 +1,125 @@
+package es.usj.crypto.server;
+
+import es.usj.crypto.enigma.Machine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static es.usj.crypto.enigma.TestMachines.readmeMachine;
+import static org.junit.Assert.*;
+
+public class EnigmaServerTest {
+
+    private static final String KEY = "plugboard=IR:HQ:NT:WZ:VC:OY:GP:LF:BX:AK" +
+            "&right-rotor=1&right-rotor-position=F" +
+            "&middle-rotor=2&middle-rotor-position=S" +
+            "&left-rotor=3&left-rotor-position=E";
+
+    private SimpleMeterRegistry registry;
+    private EnigmaServer server;
+    private HttpClient client;
+
+    @Before
+    public void start() throws IOException {
+        registry = new SimpleMeterRegistry();
+        server = new EnigmaServer(new InetSocketAddress("localhost", 0), 2, registry);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @After
+    public void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    public void encryptAndDecrypt() throws Exception {
+        HttpResponse<String> response = post("/encrypt?" + KEY, "Every secret creates a potential failure point");
+        assertEquals(200, response.statusCode());
+        assertEquals(readmeMachine().getCipheredText("Every secret creates a potential failure point"), response.body());
+
+        response = post("/decrypt?" + KEY, response.body());
+        assertEquals(200, response.statusCode());
+        assertEquals("EVERY SECRET CREATES A POTENTIAL FAILURE POINT", response.body());
+    }
+
+    @Test
+    public void largeBody() throws Exception {
+        // Body longer than the handler buffer, ciphered in several blocks
+        StringBuilder plainText = new StringBuilder();
+        Random random = new Random(11);
+        for (int i = 0; i < 200_000; i++) {
+            plainText.append(random.nextInt(6) == 0 ? ' ' : Machine.ALPHABET.charAt(random.nextInt(26)));
+        }
+        HttpResponse<String> response = post("/encrypt?" + KEY, plainText.toString());
+        assertEquals(200, response.statusCode());
+        assertEquals(readmeMachine().getCipheredText(plainText.toString()), response.body());
+    }
+
+    @Test
+    public void concurrentClients() throws Exception {
+        String expected = readmeMachine().getCipheredText("Hello world");
+        List<CompletableFuture<HttpResponse<String>>> responses = IntStream.range(0, 20)
+                .mapToObj(i -> client.sendAsync(request("/encrypt?" + KEY, "Hello world"), HttpResponse.BodyHandlers.ofString()))
+                .collect(Collectors.toList());
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(expected, response.get().body());
+        }
+        assertEquals(20, registry.get("enigma.server.requests").tag("outcome", "success").timer().count());
+        assertEquals(1.0, registry.get("enigma.server.keys").gauge().value(), 0.0);
+    }
+
+    @Test
+    public void wrongRequests() throws Exception {
+        HttpResponse<String> response = post("/encrypt?" + KEY, "Hello!");
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("Plain text includes characters not in the ALPHABET"));
+
+        response = post("/encrypt?" + KEY.replace("right-rotor=1", "right-rotor=9"), "Hello");
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("Use 'right-rotor' parameter"));
+
+        response = post("/encrypt?plugboard=IR", "Hello");
+        assertEquals(400, response.statusCode());
+
+        response = client.send(HttpRequest.newBuilder(uri("/encrypt?" + KEY)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, response.statusCode());
+    }
+
+    @Test
+    public void metrics() throws Exception {
+        post("/encrypt?" + KEY, "Hello world");
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/metrics")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("enigma.server.requests{operation=encrypt,outcome=success} COUNT 1.0"));
+        assertTrue(response.body().contains("enigma.server.bytes{operation=encrypt} COUNT 11.0"));
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(request(path, body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String path, String body) {
+        return HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+}